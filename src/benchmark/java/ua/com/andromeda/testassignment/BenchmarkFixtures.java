@@ -0,0 +1,107 @@
+package ua.com.andromeda.testassignment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorFactory;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ua.com.andromeda.testassignment.config.ReadYourWrites;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.user.User;
+import ua.com.andromeda.testassignment.user.UserField;
+import ua.com.andromeda.testassignment.user.UserView;
+import ua.com.andromeda.testassignment.validation.BirthDateValidator;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
+import ua.com.andromeda.testassignment.validation.PhoneNumberValidator;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// The beans the benchmarks need, built the way the application context builds them but without starting it
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    // the defaults of every setting, bound like the application binds user.*
+    public static UserProperties userProperties() {
+        return new Binder().bindOrCreate("user", UserProperties.class);
+    }
+
+    // without replicas, so writes leave reads and caching as they are
+    public static ReadYourWrites readYourWrites() {
+        return new ReadYourWrites(userProperties());
+    }
+
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    // records like the application does, or hands out no-op meters when disabled
+    public static MeterRegistry meterRegistry(boolean enabled) {
+        MeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        if (!enabled) {
+            meterRegistry.config().meterFilter(MeterFilter.deny());
+        }
+        return meterRegistry;
+    }
+
+    public static Validator validator(UserProperties userProperties, PhoneNumberNormalizer phoneNumberNormalizer,
+                                      MeterRegistry meterRegistry) {
+        ValidatorFactory defaultFactory = Validation.buildDefaultValidatorFactory();
+        ConstraintValidatorFactory defaultValidators = defaultFactory.getConstraintValidatorFactory();
+        return defaultFactory.usingContext()
+                .constraintValidatorFactory(new ConstraintValidatorFactory() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+                        if (key == BirthDateValidator.class) {
+                            return (T) new BirthDateValidator(userProperties, meterRegistry);
+                        }
+                        if (key == PhoneNumberValidator.class) {
+                            return (T) new PhoneNumberValidator(phoneNumberNormalizer, meterRegistry);
+                        }
+                        return defaultValidators.getInstance(key);
+                    }
+
+                    @Override
+                    public void releaseInstance(ConstraintValidator<?, ?> instance) {
+                    }
+                })
+                .getValidator();
+    }
+
+    public static User user(int i) {
+        User user = new User();
+        user.setId(UUID.nameUUIDFromBytes(("user-" + i).getBytes()));
+        user.setEmail("user" + i + "@mail.com");
+        user.setFirstName("Andrii");
+        user.setLastName("Heraskin");
+        user.setBirthDate(LocalDate.of(1950, 1, 1).plusDays(i % 18_000));
+        user.setAddress("Peremohy Street " + i);
+        user.setPhoneNumber("+38067" + (1_000_000 + i % 9_000_000));
+        user.setPhoneNumberE164(user.getPhoneNumber());
+        return user;
+    }
+
+    // the user as the list endpoints read it, with the given fields only
+    public static UserView userView(int i, Set<UserField> fields) {
+        User user = user(i);
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (UserField field : fields) {
+            values.put(field.getProperty(), new BeanWrapperImpl(user).getPropertyValue(field.getProperty()));
+        }
+        return new UserView(values);
+    }
+}
@@ -0,0 +1,82 @@
+package ua.com.andromeda.testassignment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Runs JMH with the usual command line options and writes the results as JSON to benchmark.result.
+// With benchmark.baseline pointing to an earlier result file it exits with 1 when a benchmark got
+// slower than the baseline by more than benchmark.threshold (a fraction, 0.1 by default)
+public class BenchmarkRunner {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Path result = Path.of(System.getProperty("benchmark.result", "target/jmh-result.json"));
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+        new Runner(options).run();
+
+        String baseline = System.getProperty("benchmark.baseline", "");
+        if (!baseline.isBlank()) {
+            double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "0.1"));
+            if (!compare(Path.of(baseline), result, threshold)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static boolean compare(Path baselineFile, Path resultFile, double threshold) throws Exception {
+        Map<String, JsonNode> baseline = readScores(baselineFile);
+        Map<String, JsonNode> current = readScores(resultFile);
+        boolean passed = true;
+        System.out.printf("%nComparison with %s (threshold %.0f%%)%n", baselineFile, threshold * 100);
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s%n", entry.getKey());
+                continue;
+            }
+            double beforeScore = before.at("/primaryMetric/score").asDouble();
+            double afterScore = entry.getValue().at("/primaryMetric/score").asDouble();
+            // throughput should not go down, time per operation should not go up
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().get("mode").asText());
+            double change = (afterScore - beforeScore) / beforeScore;
+            boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+            passed &= !regressed;
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "OK",
+                    entry.getKey(), beforeScore, afterScore,
+                    entry.getValue().at("/primaryMetric/scoreUnit").asText(), change * 100);
+        }
+        return passed;
+    }
+
+    private static Map<String, JsonNode> readScores(Path file) throws Exception {
+        Map<String, JsonNode> scores = new LinkedHashMap<>();
+        for (JsonNode benchmark : OBJECT_MAPPER.readTree(file.toFile())) {
+            String key = benchmark.get("benchmark").asText() + " " + benchmark.get("mode").asText();
+            JsonNode params = benchmark.get("params");
+            if (params != null) {
+                key += " " + params;
+            }
+            scores.put(key, benchmark);
+        }
+        return scores;
+    }
+}
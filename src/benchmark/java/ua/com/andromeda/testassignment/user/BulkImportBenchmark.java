@@ -0,0 +1,60 @@
+package ua.com.andromeda.testassignment.user;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Compares POST /users one by one against a single POST /users/bulk of the same users.
+// Needs a running server: BulkImportBenchmark <base url> <user count>
+public class BulkImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        HttpClient client = HttpClient.newHttpClient();
+
+        List<String> singleUsers = generateUsers(count);
+        long start = System.nanoTime();
+        for (String user : singleUsers) {
+            send(client, baseUrl + "/users", "application/json", user);
+        }
+        report("single", count, System.nanoTime() - start);
+
+        String bulkUsers = String.join("\n", generateUsers(count));
+        start = System.nanoTime();
+        send(client, baseUrl + "/users/bulk", "application/x-ndjson", bulkUsers);
+        report("bulk", count, System.nanoTime() - start);
+    }
+
+    private static List<String> generateUsers(int count) {
+        List<String> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String email = UUID.randomUUID() + "@benchmark.com";
+            LocalDate birthDate = LocalDate.of(1950, 1, 1).plusDays(i % 18_000);
+            users.add("{\"email\":\"" + email + "\",\"firstName\":\"Bench\",\"lastName\":\"Mark\"," +
+                    "\"birthDate\":\"" + birthDate + "\",\"phoneNumber\":\"+38067" + (1_000_000 + i % 9_000_000) + "\"}");
+        }
+        return users;
+    }
+
+    private static void send(HttpClient client, String url, String contentType, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " responded with " + response.statusCode());
+        }
+    }
+
+    private static void report(String mode, int count, long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        System.out.printf("%-6s %d users in %.2f s: %.0f users/s%n", mode, count, seconds, count / seconds);
+    }
+}
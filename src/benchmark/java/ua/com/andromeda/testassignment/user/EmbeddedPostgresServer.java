@@ -0,0 +1,98 @@
+package ua.com.andromeda.testassignment.user;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.postgresql.ds.PGSimpleDataSource;
+import ua.com.andromeda.testassignment.BenchmarkFixtures;
+import ua.com.andromeda.testassignment.db.migration.V1_8__Backfill_users_phone_number_e164;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+
+// Stand-in for a PostgreSQL server when there is neither a local installation nor Docker: runs PostgreSQL binaries
+// shipped as a dependency. The data directory is kept, so a generated dataset survives restarts.
+// Keeps running until stopped: EmbeddedPostgresServer <port> <data directory> [<primary port>]
+// With a primary port, which must be another EmbeddedPostgresServer, the server becomes a replica of it for
+// user.replicas.urls. Only the tables that reads use are replicated, by logical replication, as the binaries
+// cannot take a base backup for a physical standby
+public class EmbeddedPostgresServer {
+    private static final String PUBLICATION = "users_replica";
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 5433;
+        Path dataDirectory = Path.of(args.length > 1 ? args[1] : "target/embedded-postgres");
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setPort(port)
+                .setDataDirectory(dataDirectory)
+                .setCleanDataDirectory(false)
+                // enough for the application pool next to the load and dataset tools
+                .setServerConfig("max_connections", "200")
+                .setServerConfig("shared_buffers", "512MB")
+                // lets any instance be the primary of a replica
+                .setServerConfig("wal_level", "logical")
+                .start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                postgres.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }));
+        if (args.length > 2) {
+            replicate(Integer.parseInt(args[2]), postgres.getPostgresDatabase());
+        }
+        System.out.printf("DB_URL=jdbc:postgresql://localhost:%d/postgres DB_USERNAME=postgres DB_PASSWORD=postgres%n",
+                postgres.getPort());
+        Thread.currentThread().join();
+    }
+
+    // the schema comes from the migrations, the rows from the primary; the subscription survives restarts
+    private static void replicate(int primaryPort, DataSource replica) throws Exception {
+        PGSimpleDataSource primary = new PGSimpleDataSource();
+        primary.setURL("jdbc:postgresql://localhost:%d/postgres".formatted(primaryPort));
+        primary.setUser("postgres");
+        primary.setPassword("postgres");
+        migrate(primary);
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            if (!exists(statement, "SELECT 1 FROM pg_publication WHERE pubname = '" + PUBLICATION + "'")) {
+                // published as users rather than by partition, as partitions added later exist on the primary only
+                statement.execute("CREATE PUBLICATION " + PUBLICATION + " FOR TABLE users, user_search_terms "
+                        + "WITH (publish_via_partition_root = true)");
+            }
+        }
+        try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+            if (exists(statement, "SELECT 1 FROM pg_subscription WHERE subname = '" + PUBLICATION + "'")) {
+                return;
+            }
+            migrate(replica);
+            // the migrations insert sample users, which the initial copy brings over again
+            statement.execute("TRUNCATE users, user_ids, user_search_terms, user_outbox");
+            statement.execute(("CREATE SUBSCRIPTION %s CONNECTION 'host=localhost port=%d dbname=postgres "
+                    + "user=postgres password=postgres' PUBLICATION %s").formatted(PUBLICATION, primaryPort, PUBLICATION));
+        }
+        System.out.printf("Replicating users from port %d%n", primaryPort);
+    }
+
+    // what the application runs on startup, including the Java migration it registers as a bean
+    private static void migrate(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .javaMigrations(new V1_8__Backfill_users_phone_number_e164(
+                        new PhoneNumberNormalizer(BenchmarkFixtures.userProperties())))
+                .baselineOnMigrate(true)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+    }
+
+    private static boolean exists(Statement statement, String sql) throws Exception {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next();
+        }
+    }
+}
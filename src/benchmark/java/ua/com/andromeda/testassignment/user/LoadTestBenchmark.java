@@ -0,0 +1,231 @@
+package ua.com.andromeda.testassignment.user;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Closed-loop load against the /users endpoints, reporting throughput and p50/p99 latency per endpoint.
+// A scenario is the share of requests each endpoint gets, see Scenario. Run it once against a server started
+// normally and once with --spring.threads.virtual.enabled=true to compare.
+// Needs a running server with some users: LoadTestBenchmark <base url> <concurrent clients> <seconds> <scenario>
+public class LoadTestBenchmark {
+    private static final Pattern ID = Pattern.compile("\"id\":\"([0-9a-f-]{36})\"");
+    private static final String[] SEARCH_QUERIES = {"shevch", "kovalen", "olek", "kateryna", "melnyk", "oksana.m"};
+    private static final int BATCH_GET_SIZE = 50;
+
+    enum Endpoint {
+        FIND_BY_ID("GET /users/{id}"),
+        BIRTH_DATE_BETWEEN("GET /users/search/birthDate/between"),
+        SEARCH("GET /users/search"),
+        BATCH_GET("POST /users/batch-get"),
+        CREATE("POST /users"),
+        PATCH("PATCH /users/{id}"),
+        DELETE("DELETE /users/{id}");
+
+        private final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    // percentage of requests per endpoint, in Endpoint order
+    enum Scenario {
+        READ(55, 15, 20, 10, 0, 0, 0),
+        WRITE(0, 0, 0, 0, 45, 45, 10),
+        MIXED(50, 15, 10, 5, 8, 10, 2);
+
+        private final int[] weights;
+
+        Scenario(int... weights) {
+            this.weights = weights;
+        }
+
+        Endpoint pick(int roll) {
+            for (int endpoint = 0; endpoint < weights.length; endpoint++) {
+                roll -= weights[endpoint];
+                if (roll < 0) {
+                    return Endpoint.values()[endpoint];
+                }
+            }
+            throw new IllegalStateException("Weights of " + this + " do not add up to 100");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        Scenario scenario = args.length > 3 ? Scenario.valueOf(args[3].toUpperCase()) : Scenario.MIXED;
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(Math.max(4, clients / 8)))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        List<String> ids = sampleIds(client, baseUrl);
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+        List<Future<Recorder>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(workers.submit(() -> runClient(client, baseUrl, ids, scenario, deadline)));
+        }
+
+        Recorder total = new Recorder();
+        for (Future<Recorder> result : results) {
+            total.add(result.get());
+        }
+        workers.shutdown();
+        System.out.printf("scenario %s, %d clients%n", scenario, clients);
+        total.report(seconds);
+        System.exit(0);
+    }
+
+    private static List<String> sampleIds(HttpClient client, String baseUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users/export?from=1990-01-01&to=1990-12-31"))
+                .build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = ID.matcher(body);
+        while (matcher.find() && ids.size() < 10_000) {
+            ids.add(matcher.group(1));
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No users born in 1990 to run against");
+        }
+        return ids;
+    }
+
+    private static Recorder runClient(HttpClient client, String baseUrl, List<String> ids, Scenario scenario,
+                                      long deadline) {
+        Recorder recorder = new Recorder();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // only users created by this client are deleted, so the sampled ids stay valid for the other endpoints
+        Deque<String> created = new ArrayDeque<>();
+        while (System.nanoTime() < deadline) {
+            Endpoint endpoint = scenario.pick(random.nextInt(100));
+            if (endpoint == Endpoint.DELETE && created.isEmpty()) {
+                endpoint = Endpoint.CREATE;
+            }
+            HttpRequest request = request(endpoint, baseUrl, ids, created, random);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                recorder.record(endpoint, System.nanoTime() - start, response.statusCode() / 100 == 2);
+                if (endpoint == Endpoint.CREATE) {
+                    Matcher matcher = ID.matcher(response.body());
+                    if (matcher.find()) {
+                        created.push(matcher.group(1));
+                    }
+                }
+            } catch (Exception ex) {
+                recorder.record(endpoint, System.nanoTime() - start, false);
+            }
+        }
+        return recorder;
+    }
+
+    private static HttpRequest request(Endpoint endpoint, String baseUrl, List<String> ids, Deque<String> created,
+                                       ThreadLocalRandom random) {
+        String id = ids.get(random.nextInt(ids.size()));
+        return switch (endpoint) {
+            case FIND_BY_ID -> HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + id)).build();
+            case BIRTH_DATE_BETWEEN -> {
+                LocalDate from = LocalDate.of(1950, 1, 1).plusDays(random.nextInt(18_000));
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/users/search/birthDate/between?from="
+                        + from + "&to=" + from.plusDays(7) + "&cursor=&size=20")).build();
+            }
+            case SEARCH -> HttpRequest.newBuilder(URI.create(baseUrl + "/users/search?size=20&q="
+                    + SEARCH_QUERIES[random.nextInt(SEARCH_QUERIES.length)])).build();
+            case BATCH_GET -> {
+                StringJoiner body = new StringJoiner("\",\"", "[\"", "\"]");
+                for (int i = 0; i < BATCH_GET_SIZE; i++) {
+                    body.add(ids.get(random.nextInt(ids.size())));
+                }
+                yield jsonRequest(baseUrl + "/users/batch-get", "POST", body.toString());
+            }
+            case CREATE -> {
+                long n = random.nextLong(Long.MAX_VALUE);
+                yield jsonRequest(baseUrl + "/users", "POST", "{\"email\":\"load" + n + "@example.com\","
+                        + "\"firstName\":\"Load\",\"lastName\":\"Test\",\"birthDate\":\"1990-05-17\"}");
+            }
+            case PATCH -> jsonRequest(baseUrl + "/users/" + id, "PATCH",
+                    "{\"address\":\"Load street " + random.nextInt(1000) + "\"}");
+            case DELETE -> HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + created.pop())).DELETE().build();
+        };
+    }
+
+    private static HttpRequest jsonRequest(String url, String method, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static class Recorder {
+        private final long[][] latencies = new long[Endpoint.values().length][1024];
+        private final int[] counts = new int[Endpoint.values().length];
+        private final int[] errors = new int[Endpoint.values().length];
+
+        void record(Endpoint endpoint, long nanos, boolean ok) {
+            record(endpoint.ordinal(), nanos, ok);
+        }
+
+        private void record(int endpoint, long nanos, boolean ok) {
+            if (!ok) {
+                errors[endpoint]++;
+            }
+            if (counts[endpoint] == latencies[endpoint].length) {
+                latencies[endpoint] = Arrays.copyOf(latencies[endpoint], counts[endpoint] * 2);
+            }
+            latencies[endpoint][counts[endpoint]++] = nanos;
+        }
+
+        void add(Recorder other) {
+            for (int endpoint = 0; endpoint < counts.length; endpoint++) {
+                for (int i = 0; i < other.counts[endpoint]; i++) {
+                    record(endpoint, other.latencies[endpoint][i], true);
+                }
+                errors[endpoint] += other.errors[endpoint];
+            }
+        }
+
+        void report(int seconds) {
+            System.out.printf("%-36s %10s %8s %10s %10s%n", "endpoint", "req/s", "errors", "p50 ms", "p99 ms");
+            int all = 0;
+            for (Endpoint endpoint : Endpoint.values()) {
+                int count = counts[endpoint.ordinal()];
+                if (count == 0) {
+                    continue;
+                }
+                long[] sorted = Arrays.copyOf(latencies[endpoint.ordinal()], count);
+                Arrays.sort(sorted);
+                all += count;
+                System.out.printf("%-36s %10.0f %8d %10.2f %10.2f%n", endpoint.label, (double) count / seconds,
+                        errors[endpoint.ordinal()], percentile(sorted, 0.50), percentile(sorted, 0.99));
+            }
+            System.out.printf("%-36s %10.0f%n", "total", (double) all / seconds);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ua.com.andromeda.testassignment.BenchmarkFixtures;
+import ua.com.andromeda.testassignment.config.ReadYourWrites;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// In-JVM cost of a PATCH: the Jackson merge the endpoint used to do against the current
+// convert, validate and update path, with the database call stubbed out
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartialUpdateBenchmark {
+    private final Map<String, Object> fields = Map.of(
+            "firstName", "Taras",
+            "birthDate", "1990-01-01",
+            "phoneNumber", "+380 (67) 895-55-68"
+    );
+    private final String id = UUID.randomUUID().toString();
+
+    private ObjectMapper objectMapper;
+    private User user;
+    private UserService userService;
+
+    @Setup
+    public void setUp() {
+        objectMapper = BenchmarkFixtures.objectMapper();
+        user = BenchmarkFixtures.user(0);
+        UserProperties userProperties = BenchmarkFixtures.userProperties();
+        PhoneNumberNormalizer phoneNumberNormalizer = new PhoneNumberNormalizer(userProperties);
+        // a plain proxy rather than a mock, which would record a stack trace on every call
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> Optional.of(user)
+        );
+        userService = new UserService(
+                userRepository,
+                objectMapper,
+                phoneNumberNormalizer,
+                null,
+                BenchmarkFixtures.validator(userProperties, phoneNumberNormalizer, BenchmarkFixtures.meterRegistry(true)),
+                userProperties,
+                new ReadYourWrites(userProperties)
+        );
+    }
+
+    @Benchmark
+    public User updateValue() throws Exception {
+        return objectMapper.updateValue(user, fields);
+    }
+
+    @Benchmark
+    public User partialUpdate() {
+        return userService.partialUpdate(id, fields, null);
+    }
+}
@@ -0,0 +1,192 @@
+package ua.com.andromeda.testassignment.user;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+// Latency of the birth date range queries of GET /users/search/birthDate/between, and of the lookups by id behind
+// GET, PATCH and batch-get, on the partitioned users table against users_unpartitioned, a plain copy with the same
+// (birth_date, id) index and a unique index on id that is made on the first run.
+// Connects like UserDatasetGenerator; load the users first: PartitionedRangeBenchmark <queries per range>
+public class PartitionedRangeBenchmark {
+    private static final String[] TABLES = {"users", "users_unpartitioned"};
+    private static final Map<String, Period> RANGES = new LinkedHashMap<>();
+    private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+    // one id each, but the batch, which takes a chunk of the ids like UserRepositoryImpl.findAllCachedById
+    private static final Map<String, String> ID_QUERIES = new LinkedHashMap<>();
+    private static final int BATCH_SIZE = 1000;
+    private static final int WARM_UP_QUERIES = 40;
+
+    static {
+        RANGES.put("1 month", Period.ofMonths(1));
+        RANGES.put("1 year", Period.ofYears(1));
+        RANGES.put("10 years", Period.ofYears(10));
+        QUERIES.put("first page", "SELECT * FROM %s WHERE birth_date BETWEEN ? AND ? ORDER BY birth_date, id LIMIT 20");
+        QUERIES.put("page 500", "SELECT * FROM %s WHERE birth_date BETWEEN ? AND ? ORDER BY birth_date, id " +
+                "LIMIT 20 OFFSET 10000");
+        QUERIES.put("count", "SELECT count(*) FROM %s WHERE birth_date BETWEEN ? AND ?");
+        ID_QUERIES.put("by id", "SELECT * FROM %s WHERE id = ?");
+        ID_QUERIES.put("version", "SELECT version FROM %s WHERE id = ?");
+        ID_QUERIES.put("exists", "SELECT EXISTS (SELECT 1 FROM %s WHERE id = ?)");
+        // rolled back, and without the triggers of users, which the copy does not have
+        ID_QUERIES.put("update", "UPDATE %s SET first_name = ?, version = version + 1 WHERE id = ? RETURNING *");
+        ID_QUERIES.put("batch", "SELECT * FROM %s WHERE id = ANY(?)");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        try (Connection connection = DriverManager.getConnection(
+                System.getenv("DB_URL"), System.getenv("DB_USERNAME"), System.getenv("DB_PASSWORD"))) {
+            createUnpartitionedCopy(connection);
+
+            System.out.printf("%-10s %-11s %-20s %10s %10s%n", "range", "query", "table", "p50 ms", "p99 ms");
+            for (Map.Entry<String, Period> range : RANGES.entrySet()) {
+                for (Map.Entry<String, String> query : QUERIES.entrySet()) {
+                    for (String table : TABLES) {
+                        long[] nanos = run(connection, query.getValue().formatted(table), range.getValue(), queries);
+                        report(range.getKey(), query.getKey(), table, nanos);
+                    }
+                }
+            }
+
+            List<UUID> ids = sampleIds(connection, (queries + WARM_UP_QUERIES) * BATCH_SIZE);
+            for (Map.Entry<String, String> query : ID_QUERIES.entrySet()) {
+                for (String table : TABLES) {
+                    long[] nanos = runById(connection, query.getValue().formatted(table), ids, queries);
+                    report("-", query.getKey(), table, nanos);
+                }
+            }
+        }
+    }
+
+    private static void createUnpartitionedCopy(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS users_unpartitioned AS TABLE users WITH NO DATA");
+            long start = System.nanoTime();
+            if (!hasRows(statement)) {
+                statement.execute("INSERT INTO users_unpartitioned SELECT * FROM users");
+                statement.execute("CREATE INDEX IF NOT EXISTS users_unpartitioned_birth_date_id_idx " +
+                        "ON users_unpartitioned (birth_date, id)");
+                statement.execute("VACUUM ANALYZE users_unpartitioned");
+                System.out.printf("users_unpartitioned copied in %.1f s%n", (System.nanoTime() - start) / 1e9);
+            }
+            // the primary key users had before it was partitioned; outside the copy, as older copies lack it
+            statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS users_unpartitioned_id_idx " +
+                    "ON users_unpartitioned (id)");
+        }
+    }
+
+    // scattered over the table, so the lookups do not all hit the same pages
+    private static List<UUID> sampleIds(Connection connection, int count) throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id FROM users TABLESAMPLE SYSTEM (1) LIMIT ?")) {
+            statement.setInt(1, count);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getObject(1, UUID.class));
+                }
+            }
+        }
+        Collections.shuffle(ids, new Random(42));
+        return ids;
+    }
+
+    private static boolean hasRows(Statement statement) throws Exception {
+        try (ResultSet resultSet = statement.executeQuery("SELECT 1 FROM users_unpartitioned LIMIT 1")) {
+            return resultSet.next();
+        }
+    }
+
+    // ranges start in each year from 1960 to 1999 in a scattered order, after a warm-up round over all of them
+    private static long[] run(Connection connection, String sql, Period length, int queries) throws Exception {
+        long[] nanos = new long[queries];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = -40; i < queries; i++) {
+                LocalDate from = LocalDate.of(1960 + Math.floorMod(i * 7, 40), 3, 1);
+                statement.setObject(1, from);
+                statement.setObject(2, from.plus(length).minusDays(1));
+                long start = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getObject(1);
+                    }
+                }
+                if (i >= 0) {
+                    nanos[i] = System.nanoTime() - start;
+                }
+            }
+        }
+        return nanos;
+    }
+
+    // a warm-up round on other ids first; writes are rolled back, so every table sees the same rows
+    private static long[] runById(Connection connection, String sql, List<UUID> ids, int queries) throws Exception {
+        long[] nanos = new long[queries];
+        boolean update = sql.startsWith("UPDATE");
+        boolean batch = sql.contains("ANY");
+        if (update) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET session_replication_role = replica");
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = -WARM_UP_QUERIES; i < queries; i++) {
+                int index = i + WARM_UP_QUERIES;
+                if (batch) {
+                    UUID[] chunk = ids.subList(index * BATCH_SIZE, (index + 1) * BATCH_SIZE).toArray(UUID[]::new);
+                    statement.setArray(1, connection.createArrayOf("uuid", chunk));
+                } else if (update) {
+                    statement.setString(1, "Taras");
+                    statement.setObject(2, ids.get(index));
+                } else {
+                    statement.setObject(1, ids.get(index));
+                }
+                long start = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getObject(1);
+                    }
+                }
+                if (i >= 0) {
+                    nanos[i] = System.nanoTime() - start;
+                }
+                if (update) {
+                    connection.rollback();
+                }
+            }
+        } finally {
+            if (update) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("RESET session_replication_role");
+                }
+                connection.setAutoCommit(true);
+            }
+        }
+        return nanos;
+    }
+
+    private static void report(String range, String query, String table, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-10s %-11s %-20s %10.2f %10.2f%n", range, query, table,
+                percentile(sorted, 0.50), percentile(sorted, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1_000_000.0;
+    }
+}
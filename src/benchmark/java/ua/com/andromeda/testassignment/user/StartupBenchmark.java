@@ -0,0 +1,167 @@
+package ua.com.andromeda.testassignment.user;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Starts the application in each mode of the fast-startup build and reports the time from launch to the first
+// answered GET /users/search/birthDate/between, and the resident memory at that point (Linux only). The application
+// connects with the DB_URL, DB_USERNAME and DB_PASSWORD environment variables of this process.
+// Build with -P fast-startup first, and with -P fast-startup,native native:compile for the native mode:
+// StartupBenchmark <runs per mode> [<mode>...], modes: jar, classpath, cds, aot, aot-cds, native
+public class StartupBenchmark {
+    private static final Path JAR = Path.of("target/test-assignment-0.0.1-SNAPSHOT.jar");
+    private static final Path CLASSPATH_JAR =
+            Path.of("target/fast-startup/test-assignment-0.0.1-SNAPSHOT-fast-startup.jar");
+    private static final Path NATIVE_IMAGE = Path.of("target/test-assignment");
+    private static final int PORT = 8090;
+    private static final String FIRST_REQUEST = "http://localhost:" + PORT
+            + "/users/search/birthDate/between?from=1990-01-01&to=1990-01-31";
+    // what a client does first, so that the archive also holds the classes of serving a request
+    private static final List<String> TRAINING_REQUESTS = List.of(FIRST_REQUEST,
+            "http://localhost:" + PORT + "/users/00000000-0000-0000-0000-000000000000",
+            "http://localhost:" + PORT + "/users/search?q=shevchenko",
+            "http://localhost:" + PORT + "/users/stats");
+    private static final Duration TIMEOUT = Duration.ofMinutes(3);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        List<String> modes = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length)
+                : List.of("jar", "classpath", "cds", "aot", "aot-cds", "native");
+
+        System.out.printf("%-10s %16s %10s%n", "mode", "first request s", "RSS MB");
+        for (String mode : modes) {
+            if (mode.equals("native") && !Files.exists(NATIVE_IMAGE)) {
+                System.out.printf("%-10s %16s %10s%n", mode, "no image", "-");
+                continue;
+            }
+            train(mode);
+            long[] nanos = new long[runs];
+            long[] rss = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                Process process = start(command(mode, null));
+                try {
+                    awaitFirstRequest(process);
+                    nanos[i] = System.nanoTime() - start;
+                    rss[i] = residentKilobytes(process);
+                } finally {
+                    stop(process);
+                }
+            }
+            Arrays.sort(nanos);
+            Arrays.sort(rss);
+            System.out.printf("%-10s %16.2f %10.0f%n", mode, nanos[runs / 2] / 1e9, rss[runs / 2] / 1024.0);
+        }
+    }
+
+    // a dynamic archive of the classes a startup and the first requests load, written when the JVM exits
+    private static void train(String mode) throws Exception {
+        Path archive = archive(mode);
+        if (archive == null || Files.exists(archive)) {
+            return;
+        }
+        Process process = start(command(mode, "-XX:ArchiveClassesAtExit=" + archive));
+        try {
+            awaitFirstRequest(process);
+            for (String url : TRAINING_REQUESTS) {
+                CLIENT.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.discarding());
+            }
+        } finally {
+            stop(process);
+        }
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("No class data sharing archive written to " + archive);
+        }
+    }
+
+    private static Path archive(String mode) {
+        return switch (mode) {
+            case "cds" -> Path.of("target/fast-startup/application.jsa");
+            case "aot-cds" -> Path.of("target/fast-startup/application-aot.jsa");
+            default -> null;
+        };
+    }
+
+    private static List<String> command(String mode, String trainingOption) {
+        List<String> command = new ArrayList<>();
+        if (mode.equals("native")) {
+            command.add(NATIVE_IMAGE.toString());
+        } else {
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            if (mode.startsWith("aot")) {
+                command.add("-Dspring.aot.enabled=true");
+            }
+            Path archive = archive(mode);
+            if (trainingOption != null) {
+                command.add(trainingOption);
+            } else if (archive != null) {
+                command.add("-XX:SharedArchiveFile=" + archive);
+            }
+            command.add("-jar");
+            command.add((mode.equals("jar") ? JAR : CLASSPATH_JAR).toString());
+        }
+        command.add("--server.port=" + PORT);
+        return command;
+    }
+
+    private static Process start(List<String> command) throws Exception {
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(Path.of("target/startup-benchmark.log").toFile())
+                .start();
+    }
+
+    private static void awaitFirstRequest(Process process) throws Exception {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(FIRST_REQUEST)).build();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue()
+                        + ", see target/startup-benchmark.log");
+            }
+            try {
+                if (CLIENT.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ex) {
+                // not listening yet
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException("No answer within " + TIMEOUT);
+    }
+
+    private static long residentKilobytes(Process process) throws Exception {
+        Path status = Path.of("/proc", Long.toString(process.pid()), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+
+    // SIGTERM, so that the JVM exits normally and writes the archive when training
+    private static void stop(Process process) throws Exception {
+        process.destroy();
+        if (!process.waitFor(1, TimeUnit.MINUTES)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ua.com.andromeda.testassignment.user;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.test.web.servlet.setup.StandaloneMockMvcBuilder;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import ua.com.andromeda.testassignment.BenchmarkFixtures;
+import ua.com.andromeda.testassignment.exception.handler.RestResponseEntityExceptionHandler;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Request dispatch, argument binding and response serialization through UserController and UserService,
+// with the repository stubbed out
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserControllerBenchmark {
+    // without metrics, or with the request observation filter and the error counters recording into Prometheus
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    // whether serialized responses are cached; the cached user and page are written on the first call
+    @Param({"false", "true"})
+    private boolean responseCache;
+
+    private final String id = BenchmarkFixtures.user(0).getId().toString();
+    private final String unknownId = BenchmarkFixtures.user(1).getId().toString();
+    private final String malformedId = "wp-login.php";
+
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() throws Exception {
+        User user = BenchmarkFixtures.user(0);
+        List<UserView> views = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            views.add(BenchmarkFixtures.userView(i, EnumSet.allOf(UserField.class)));
+        }
+        Slice<UserView> slice = new SliceImpl<>(views, PageRequest.ofSize(20), true);
+        // a plain proxy rather than a mock, which would record a stack trace on every call;
+        // only the user created above exists
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findCachedById" -> Optional.ofNullable(user.getId().equals(args[0]) ? user : null);
+                    case "findVersionById" -> Optional.ofNullable(user.getId().equals(args[0]) ? user.getVersion() : null);
+                    case "findViewsByBirthDateBetweenAfter" -> slice;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+        UserService userService = new UserService(userRepository, null, null, null, null, BenchmarkFixtures.userProperties(),
+                BenchmarkFixtures.readYourWrites());
+        MeterRegistry meterRegistry = BenchmarkFixtures.meterRegistry(metrics);
+        // the application also keeps a histogram of request durations for percentiles
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+        UserResponseCache userResponseCache = responseCache
+                ? new UserResponseCache(BenchmarkFixtures.objectMapper(), BenchmarkFixtures.userProperties(),
+                        BenchmarkFixtures.readYourWrites())
+                : new UncachedResponses();
+        StandaloneMockMvcBuilder mockMvcBuilder = MockMvcBuilders.standaloneSetup(
+                        new UserController(userService, null, null, userResponseCache,
+                                BenchmarkFixtures.userProperties()))
+                .setControllerAdvice(new RestResponseEntityExceptionHandler(meterRegistry))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(BenchmarkFixtures.objectMapper()));
+        if (metrics) {
+            ObservationRegistry observationRegistry = ObservationRegistry.create();
+            observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+            mockMvcBuilder.addFilters(new ServerHttpObservationFilter(observationRegistry));
+        }
+        mockMvc = mockMvcBuilder.build();
+        expectStatus(findById(), 200);
+        expectStatus(findById_notModified(), 304);
+        expectStatus(findById_malformedId(), 400);
+        expectStatus(findById_unknownId(), 404);
+    }
+
+    private static class UncachedResponses extends UserResponseCache {
+
+        UncachedResponses() {
+            super(BenchmarkFixtures.objectMapper(), BenchmarkFixtures.userProperties(), BenchmarkFixtures.readYourWrites());
+        }
+
+        @Override
+        public boolean write(String cacheName, Object key, HttpServletRequest request, HttpServletResponse response) {
+            return false;
+        }
+
+        @Override
+        public boolean put(String cacheName, Object key, String eTag, Object body, HttpServletRequest request,
+                           HttpServletResponse response) {
+            return false;
+        }
+    }
+
+    private static void expectStatus(MvcResult result, int status) {
+        if (result.getResponse().getStatus() != status) {
+            throw new IllegalStateException(result.getRequest().getRequestURI() + " responded with "
+                    + result.getResponse().getStatus() + " instead of " + status);
+        }
+    }
+
+    @Benchmark
+    public MvcResult findById() throws Exception {
+        return mockMvc.perform(get("/users/{userId}", id)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findById_notModified() throws Exception {
+        return mockMvc.perform(get("/users/{userId}", id).header(HttpHeaders.IF_NONE_MATCH, "\"0\"")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findById_malformedId() throws Exception {
+        return mockMvc.perform(get("/users/{userId}", malformedId)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findById_unknownId() throws Exception {
+        return mockMvc.perform(get("/users/{userId}", unknownId)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult searchByBirthDate() throws Exception {
+        return mockMvc.perform(get("/users/search/birthDate/between")
+                .param("from", "1990-01-01")
+                .param("to", "1990-12-31")
+                .param("cursor", "")
+                .param("size", "20")).andReturn();
+    }
+}
@@ -0,0 +1,114 @@
+package ua.com.andromeda.testassignment.user;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Loads synthetic users with COPY, connecting with the same DB_URL, DB_USERNAME and DB_PASSWORD as the application.
+// Run the application once beforehand so that Flyway has created the table: UserDatasetGenerator <user count>
+public class UserDatasetGenerator {
+    private static final String COPY_SQL = "COPY users (id, email, first_name, last_name, birth_date, address, " +
+            "phone_number, phone_number_e164, version) FROM STDIN (FORMAT csv)";
+    private static final int ROWS_PER_WRITE = 10_000;
+
+    private static final String[] FIRST_NAMES = {
+            "Oleksandr", "Andrii", "Dmytro", "Serhii", "Volodymyr", "Mykola", "Ivan", "Yurii", "Oleh", "Maksym",
+            "Taras", "Bohdan", "Vasyl", "Petro", "Roman", "Viktor", "Artem", "Denys", "Ihor", "Pavlo",
+            "Olena", "Tetiana", "Nataliia", "Iryna", "Svitlana", "Oksana", "Yuliia", "Mariia", "Anna", "Kateryna",
+            "Liudmyla", "Halyna", "Viktoriia", "Olha", "Nadiia", "Larysa", "Sofiia", "Daryna", "Khrystyna", "Zoriana",
+            "John", "Michael", "David", "James", "Robert", "Emma", "Olivia", "Sophia", "Isabella", "Charlotte"
+    };
+    private static final String[] LAST_NAMES = {
+            "Melnyk", "Shevchenko", "Boiko", "Kovalenko", "Bondarenko", "Tkachenko", "Kovalchuk", "Kravchenko",
+            "Oliinyk", "Shevchuk", "Koval", "Polishchuk", "Bondar", "Tkachuk", "Moroz", "Marchenko", "Lysenko",
+            "Rudenko", "Savchenko", "Petrenko", "Klymenko", "Pavlenko", "Savchuk", "Kuzmenko", "Ponomarenko",
+            "Kharchenko", "Levchenko", "Karpenko", "Vasylenko", "Hrytsenko", "Heraskin", "Berkut", "Franko",
+            "Ukrainka", "Skovoroda", "Kotliarevsky", "Stus", "Symonenko", "Kostenko", "Zabuzhko",
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Wilson", "Anderson"
+    };
+    private static final String[] DOMAINS = {"gmail.com", "ukr.net", "i.ua", "outlook.com", "yahoo.com", "meta.ua"};
+    private static final String[] STREETS = {"Khreshchatyk", "Peremohy", "Shevchenka", "Franka", "Sadova",
+            "Lesi Ukrainky", "Hrushevskoho", "Soborna", "Zelena", "Nezalezhnosti"};
+    private static final String[] CITIES = {"Kyiv", "Lviv", "Kharkiv", "Odesa", "Dnipro", "Zaporizhzhia",
+            "Vinnytsia", "Poltava", "Chernihiv", "Uzhhorod"};
+    private static final String[] OPERATOR_CODES = {"50", "63", "66", "67", "68", "73", "93", "95", "96", "97", "98"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        try (Connection connection = DriverManager.getConnection(
+                System.getenv("DB_URL"), System.getenv("DB_USERNAME"), System.getenv("DB_PASSWORD"))) {
+            long start = System.nanoTime();
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            StringBuilder rows = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                appendUser(rows, i);
+                if ((i + 1) % ROWS_PER_WRITE == 0 || i == count - 1) {
+                    byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(bytes, 0, bytes.length);
+                    rows.setLength(0);
+                }
+            }
+            long copied = copyIn.endCopy();
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("%d users in %.1f s: %.0f users/s%n", copied, seconds, copied / seconds);
+        }
+    }
+
+    private static void appendUser(StringBuilder rows, int index) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String firstName = skewedPick(FIRST_NAMES, random);
+        String lastName = skewedPick(LAST_NAMES, random);
+        String email = (firstName + "." + lastName).toLowerCase() + index + "@" + skewedPick(DOMAINS, random);
+
+        rows.append(UUID.randomUUID()).append(',')
+                .append(email).append(',')
+                .append(firstName).append(',')
+                .append(lastName).append(',')
+                .append(birthDate(random)).append(',');
+        if (random.nextInt(100) >= 25) {
+            rows.append('"').append(random.nextInt(1, 200)).append(' ').append(skewedPick(STREETS, random))
+                    .append(" Street, ").append(skewedPick(CITIES, random)).append('"');
+        }
+        rows.append(',');
+        if (random.nextInt(100) >= 35) {
+            String operator = OPERATOR_CODES[random.nextInt(OPERATOR_CODES.length)];
+            int subscriber = random.nextInt(10_000_000);
+            rows.append(phoneNumber(operator, subscriber, random)).append(',')
+                    .append("+380").append(operator).append(String.format("%07d", subscriber));
+        } else {
+            rows.append(',');
+        }
+        rows.append(",0\n");
+    }
+
+    // a few names are much more common than the rest, like in real data
+    private static String skewedPick(String[] values, ThreadLocalRandom random) {
+        double r = random.nextDouble();
+        return values[(int) (r * r * values.length)];
+    }
+
+    // adults only, most of them between 25 and 50
+    private static LocalDate birthDate(ThreadLocalRandom random) {
+        double age = Math.min(90, Math.max(18.5, 38 + random.nextGaussian() * 12));
+        return LocalDate.now().minusDays((long) (age * 365.25));
+    }
+
+    // the formats users actually type, all normalized to the same E.164 number
+    private static String phoneNumber(String operator, int subscriber, ThreadLocalRandom random) {
+        String digits = String.format("%07d", subscriber);
+        return switch (random.nextInt(4)) {
+            case 0 -> "+380" + operator + digits;
+            case 1 -> "\"+380 (" + operator + ") " + digits.substring(0, 3) + "-" + digits.substring(3, 5) + "-"
+                    + digits.substring(5) + "\"";
+            case 2 -> "0" + operator + " " + digits.substring(0, 3) + " " + digits.substring(3, 5) + " "
+                    + digits.substring(5);
+            default -> "0" + operator + digits;
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ua.com.andromeda.testassignment.BenchmarkFixtures;
+import ua.com.andromeda.testassignment.dto.CompactPage;
+import ua.com.andromeda.testassignment.dto.Dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Encode and decode cost of GET /users/{id} (users = 1) and of a 1000-user page of
+// GET /users/search/birthDate/between in each format the Accept header can pick.
+// Payload sizes are printed once per trial, before the first warmup iteration
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserFormatBenchmark {
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1", "1000"})
+    private int users;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Object payload;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = objectMapper(format);
+        writer = objectMapper.writer();
+        if (users == 1) {
+            payload = new Dto<>(BenchmarkFixtures.user(0));
+            reader = objectMapper.readerFor(new TypeReference<Dto<User>>() {
+            });
+        } else {
+            List<UserView> content = new ArrayList<>(users);
+            for (int i = 0; i < users; i++) {
+                content.add(BenchmarkFixtures.userView(i, UserField.parse("")));
+            }
+            payload = new Dto<>(CompactPage.of(new PageImpl<>(content, PageRequest.of(0, users), 1_000_000)));
+            // a caller reads the users into its own type
+            reader = objectMapper.readerFor(new TypeReference<Dto<CompactPage<Map<String, Object>>>>() {
+            });
+        }
+        encoded = writer.writeValueAsBytes(payload);
+        System.out.printf("%n%s, %d users: %d bytes%n", format, users, encoded.length);
+    }
+
+    // the mapper the application configures for JSON, on the format's factory
+    private static ObjectMapper objectMapper(String format) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return switch (format) {
+            case "json" -> builder.build();
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return writer.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return reader.readValue(encoded);
+    }
+}
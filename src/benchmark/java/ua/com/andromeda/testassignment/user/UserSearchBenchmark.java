@@ -0,0 +1,77 @@
+package ua.com.andromeda.testassignment.user;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Sequential GET /users/search requests per kind of query, reporting p50/p99 latency of the first and second page.
+// Needs a running server with users from UserDatasetGenerator: UserSearchBenchmark <base url> <requests per query>
+public class UserSearchBenchmark {
+    private static final Pattern NEXT = Pattern.compile("\"next\":\"([^\"]+)\"");
+    private static final Map<String, List<String>> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("first name prefix", List.of("olek", "dmyt", "kater", "khryst", "isabel"));
+        QUERIES.put("last name prefix", List.of("shevch", "kovalen", "bondar", "skovor", "zabuzh"));
+        QUERIES.put("typo", List.of("shevcenko", "kovalanko", "petrneko", "symonenco", "andersen"));
+        QUERIES.put("email fragment", List.of("oksana.moroz", "taras.stus", "emma.smith", "olha.franko"));
+        QUERIES.put("full name", List.of("andrii melnyk", "iryna boiko", "john garcia", "zoriana kostenko"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        HttpClient client = HttpClient.newHttpClient();
+
+        System.out.printf("%-18s %-6s %10s %10s %10s%n", "query", "page", "p50 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, List<String>> entry : QUERIES.entrySet()) {
+            long[] firstPage = new long[requests];
+            long[] secondPage = new long[requests];
+            for (int i = 0; i < requests; i++) {
+                String query = entry.getValue().get(i % entry.getValue().size());
+                String url = baseUrl + "/users/search?size=20&q=" + URLEncoder.encode(query, StandardCharsets.UTF_8);
+                long start = System.nanoTime();
+                String body = get(client, url);
+                firstPage[i] = System.nanoTime() - start;
+
+                Matcher next = NEXT.matcher(body);
+                start = System.nanoTime();
+                if (next.find()) {
+                    get(client, url + "&cursor=" + next.group(1));
+                }
+                secondPage[i] = System.nanoTime() - start;
+            }
+            report(entry.getKey(), "first", firstPage);
+            report(entry.getKey(), "second", secondPage);
+        }
+    }
+
+    private static String get(HttpClient client, String url) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " responded with " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static void report(String query, String page, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-18s %-6s %10.2f %10.2f %10.2f%n", query, page,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,76 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import ua.com.andromeda.testassignment.BenchmarkFixtures;
+import ua.com.andromeda.testassignment.dto.CompactPage;
+import ua.com.andromeda.testassignment.dto.Dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSerializationBenchmark {
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectWriter writer;
+    private Dto<User> user;
+    private Dto<Page<User>> page;
+    private Dto<CompactPage<UserView>> compactPage;
+    private Dto<CompactPage<UserView>> sparsePage;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        writer = objectMapper.writer();
+        user = new Dto<>(BenchmarkFixtures.user(0));
+        List<User> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            content.add(BenchmarkFixtures.user(i));
+        }
+        page = new Dto<>(new PageImpl<>(content, PageRequest.of(0, pageSize), 1_000_000));
+        compactPage = new Dto<>(compactPage(UserField.parse("")));
+        sparsePage = new Dto<>(compactPage(UserField.parse("email")));
+    }
+
+    private CompactPage<UserView> compactPage(Set<UserField> fields) {
+        List<UserView> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            content.add(BenchmarkFixtures.userView(i, fields));
+        }
+        return CompactPage.of(new PageImpl<>(content, PageRequest.of(0, pageSize), 1_000_000));
+    }
+
+    @Benchmark
+    public byte[] dtoUser() throws Exception {
+        return writer.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] dtoPage() throws Exception {
+        return writer.writeValueAsBytes(page);
+    }
+
+    // what GET /users/search/birthDate/between writes, with all fields and with fields=email
+    @Benchmark
+    public byte[] dtoCompactPage() throws Exception {
+        return writer.writeValueAsBytes(compactPage);
+    }
+
+    @Benchmark
+    public byte[] dtoSparsePage() throws Exception {
+        return writer.writeValueAsBytes(sparsePage);
+    }
+}
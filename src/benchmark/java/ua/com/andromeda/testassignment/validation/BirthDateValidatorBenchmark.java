@@ -0,0 +1,32 @@
+package ua.com.andromeda.testassignment.validation;
+
+import org.openjdk.jmh.annotations.*;
+import ua.com.andromeda.testassignment.BenchmarkFixtures;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BirthDateValidatorBenchmark {
+    // validator timers switched off (no-op meters) and on
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private final LocalDate birthDate = LocalDate.of(2000, 1, 1);
+    private BirthDateValidator validator;
+
+    @Setup
+    public void setUp() {
+        validator = new BirthDateValidator(BenchmarkFixtures.userProperties(), BenchmarkFixtures.meterRegistry(metrics));
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return validator.isValid(birthDate, null);
+    }
+}
@@ -0,0 +1,45 @@
+package ua.com.andromeda.testassignment.validation;
+
+import org.openjdk.jmh.annotations.*;
+import ua.com.andromeda.testassignment.BenchmarkFixtures;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhoneNumberValidatorBenchmark {
+    // validator timers switched off (no-op meters) and on
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private PhoneNumberValidator validator;
+    private String[] phoneNumbers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        validator = new PhoneNumberValidator(
+                new PhoneNumberNormalizer(BenchmarkFixtures.userProperties()),
+                BenchmarkFixtures.meterRegistry(metrics)
+        );
+        phoneNumbers = new String[100_000];
+        for (int i = 0; i < phoneNumbers.length; i++) {
+            phoneNumbers[i] = "+380 (67) " + (1_000_000 + i);
+        }
+    }
+
+    @Benchmark
+    public boolean isValid_repeatedNumber() {
+        return validator.isValid("+380 (67) 895-55-68", null);
+    }
+
+    // cycles through ten times more numbers than the cache holds, so nearly every call parses
+    @Benchmark
+    public boolean isValid_distinctNumbers() {
+        return validator.isValid(phoneNumbers[next++ % phoneNumbers.length], null);
+    }
+}
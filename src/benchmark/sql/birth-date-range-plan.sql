@@ -0,0 +1,54 @@
+-- Query plans of the birth-date range search, with and without users_birth_date_id_idx.
+-- Run with psql against a populated database after all migrations are applied:
+--   psql "$DB_URL" -f src/benchmark/sql/birth-date-range-plan.sql
+-- The "before" plans drop the index inside a transaction that is rolled back,
+-- which takes an exclusive lock on users: never run it against production.
+
+analyze users;
+
+-- after: offset page 0, as issued by findViewsByBirthDateBetween
+explain (analyze, buffers)
+select *
+from users
+where birth_date between date '1990-01-01' and date '1990-12-31'
+order by birth_date, id
+offset 0 rows fetch first 10 rows only;
+
+-- after: deep offset page
+explain (analyze, buffers)
+select *
+from users
+where birth_date between date '1960-01-01' and date '2000-12-31'
+order by birth_date, id
+offset 100000 rows fetch first 10 rows only;
+
+-- after: keyset slice, as issued by findViewsByBirthDateBetweenAfter
+explain (analyze, buffers)
+select *
+from users
+where birth_date between date '1960-01-01' and date '2000-12-31'
+  and (birth_date, id) > (date '1990-06-15', '00000000-0000-0000-0000-000000000000')
+order by birth_date, id
+offset 0 rows fetch first 11 rows only;
+
+begin;
+drop index users_birth_date_id_idx;
+
+-- before: offset page 0
+explain (analyze, buffers)
+select *
+from users
+where birth_date between date '1990-01-01' and date '1990-12-31'
+order by birth_date, id
+offset 0 rows fetch first 10 rows only;
+
+-- before: keyset slice
+explain (analyze, buffers)
+select *
+from users
+where birth_date between date '1960-01-01' and date '2000-12-31'
+  and (birth_date, id) > (date '1990-06-15', '00000000-0000-0000-0000-000000000000')
+order by birth_date, id
+offset 0 rows fetch first 11 rows only;
+
+rollback;
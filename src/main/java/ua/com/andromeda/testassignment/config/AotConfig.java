@@ -0,0 +1,77 @@
+package ua.com.andromeda.testassignment.config;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import ua.com.andromeda.testassignment.dto.BatchGetResult;
+import ua.com.andromeda.testassignment.dto.BulkImportResult;
+import ua.com.andromeda.testassignment.dto.CompactPage;
+import ua.com.andromeda.testassignment.dto.CursorPage;
+import ua.com.andromeda.testassignment.dto.Dto;
+import ua.com.andromeda.testassignment.dto.UserStats;
+import ua.com.andromeda.testassignment.exception.ErrorResponse;
+import ua.com.andromeda.testassignment.user.SearchHit;
+import ua.com.andromeda.testassignment.user.User;
+import ua.com.andromeda.testassignment.user.UserEvent;
+import ua.com.andromeda.testassignment.user.UserView;
+import ua.com.andromeda.testassignment.validation.BirthDateValidator;
+import ua.com.andromeda.testassignment.validation.PhoneNumberValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The fast-startup build runs process-aot, which decides the @Profile and @Conditional beans at build time, with the
+// defaults: servlet stack, no replicas, no outbox file, platform threads. With its output in use (the native image,
+// or spring.aot.enabled=true) settings that choose other beans would be ignored, so startup refuses them instead
+@Configuration
+@ImportRuntimeHints(AotConfig.UserRuntimeHints.class)
+public class AotConfig {
+
+    public AotConfig(Environment environment, UserProperties userProperties) {
+        if (!AotDetector.useGeneratedArtifacts()) {
+            return;
+        }
+        List<String> ignored = new ArrayList<>();
+        if (environment.acceptsProfiles(Profiles.of("reactive"))) {
+            ignored.add("the reactive profile");
+        }
+        if (!userProperties.replicas().urls().isEmpty()) {
+            ignored.add("user.replicas.urls");
+        }
+        if (userProperties.outbox().file() != null) {
+            ignored.add("user.outbox.file");
+        }
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            ignored.add("spring.threads.virtual.enabled");
+        }
+        if (!ignored.isEmpty()) {
+            throw new IllegalStateException("Ahead-of-time processed build cannot apply " + String.join(", ", ignored)
+                    + "; run the regular build or start without spring.aot.enabled");
+        }
+    }
+
+    // what a native image cannot discover from the bean definitions alone
+    static class UserRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // bodies that are serialized outside of a controller's return type: cached responses, pre-encoded errors,
+            // the export and the change feed. Lombok's accessors are ordinary methods by then
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                    User.class, UserView.class, SearchHit.class, UserEvent.class, UserStats.class, ErrorResponse.class,
+                    Dto.class, CompactPage.class, CursorPage.class, BatchGetResult.class, BulkImportResult.class);
+            // Hibernate Validator creates them through Spring's constraint validator factory
+            hints.reflection()
+                    .registerType(BirthDateValidator.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                    .registerType(PhoneNumberValidator.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            // libphonenumber reads the metadata of a region from the classpath when the region is first used
+            hints.resources().registerPattern("com/google/i18n/phonenumbers/data/*");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ua.com.andromeda.testassignment.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String USERS_CACHE = "users";
+    // serialized responses by user id and by birthdate query, see UserResponseCache
+    public static final String USER_RESPONSES_CACHE = "userResponses";
+    public static final String USER_PAGE_RESPONSES_CACHE = "userPageResponses";
+
+    // Evictions and puts made in a transaction wait for its commit. Evicted right away, a read in between would
+    // put back the row the transaction is replacing, to be served until the entry expires. Outside a transaction,
+    // e.g. in the reactive repository, they still apply at once
+    @Bean
+    public static BeanPostProcessor transactionAwareCacheManager() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof CacheManager cacheManager && !(bean instanceof TransactionAwareCacheManagerProxy)) {
+                    return new TransactionAwareCacheManagerProxy(cacheManager);
+                }
+                return bean;
+            }
+        };
+    }
+}
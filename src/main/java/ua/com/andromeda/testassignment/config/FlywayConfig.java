@@ -0,0 +1,20 @@
+package ua.com.andromeda.testassignment.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class FlywayConfig {
+
+    // CREATE INDEX CONCURRENTLY waits for every open transaction, including the one
+    // holding Flyway's default transaction-level advisory lock, so use a session-level lock
+    @Bean
+    public FlywayConfigurationCustomizer sessionLevelLockCustomizer() {
+        return configuration -> configuration.configuration(
+                Map.of("flyway.postgresql.transactional.lock", "false")
+        );
+    }
+}
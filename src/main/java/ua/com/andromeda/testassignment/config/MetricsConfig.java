@@ -0,0 +1,17 @@
+package ua.com.andromeda.testassignment.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Controller endpoints (http.server.requests), repository methods (spring.data.repository.invocations)
+// and the Hikari pool (hikaricp.connections.*) are instrumented by Spring Boot already
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,109 @@
+package ua.com.andromeda.testassignment.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// Replicas apply a write some time after the primary. For the window after a write, the client that wrote reads
+// from the primary; it is recognized by a cookie, so this holds whichever instance it reaches next. Meanwhile this
+// instance does not cache the users it wrote when they are read, since a replica may still return what the write
+// evicted, and reads the birthdate pages it caches from the primary, since any write may have changed any page.
+// Does nothing without replicas
+@Component
+public class ReadYourWrites {
+    public static final String COOKIE_NAME = "primary-reads-until";
+
+    private final boolean enabled;
+    private final Duration window;
+    // ids written within the window; bounded by the writes a window takes
+    private final Cache<UUID, Boolean> recentlyWrittenIds;
+    private final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
+    private volatile long recentWriteUntil;
+
+    public ReadYourWrites(UserProperties userProperties) {
+        this.enabled = !userProperties.replicas().urls().isEmpty();
+        this.window = userProperties.replicas().readYourWritesWindow();
+        this.recentlyWrittenIds = Caffeine.newBuilder().expireAfterWrite(window).build();
+    }
+
+    public void written(UUID id) {
+        if (enabled) {
+            recentlyWrittenIds.put(id, Boolean.TRUE);
+            written();
+        }
+    }
+
+    public void written(Collection<UUID> ids) {
+        if (enabled) {
+            ids.forEach(id -> recentlyWrittenIds.put(id, Boolean.TRUE));
+            written();
+        }
+    }
+
+    private void written() {
+        long until = System.currentTimeMillis() + window.toMillis();
+        recentWriteUntil = until;
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null) {
+                Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(until));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+                response.addCookie(cookie);
+            }
+        }
+    }
+
+    public boolean recentlyWritten(UUID id) {
+        return enabled && recentlyWrittenIds.getIfPresent(id) != null;
+    }
+
+    // for reads cached without knowing which users they hold: within the window after a write on this instance they
+    // go to the primary, so the cache is filled with what the write left
+    public <T> T readForCache(Supplier<T> read) {
+        if (!enabled || System.currentTimeMillis() >= recentWriteUntil) {
+            return read.get();
+        }
+        primaryReads.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            primaryReads.remove();
+        }
+    }
+
+    // a cookie further ahead than the window was not set by a write, and only moves reads off the replicas
+    public boolean primaryRequired() {
+        if (!enabled) {
+            return false;
+        }
+        if (primaryReads.get() != null) {
+            return true;
+        }
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        Cookie cookie = WebUtils.getCookie(attributes.getRequest(), COOKIE_NAME);
+        if (cookie == null) {
+            return false;
+        }
+        long remaining;
+        try {
+            remaining = Long.parseLong(cookie.getValue()) - System.currentTimeMillis();
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        return remaining > 0 && remaining <= window.toMillis();
+    }
+}
@@ -0,0 +1,54 @@
+package ua.com.andromeda.testassignment.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "user")
+public record UserProperties(@DefaultValue Min min, @DefaultValue Phone phone, @DefaultValue BulkImport bulkImport,
+                             @DefaultValue BatchGet batchGet, @DefaultValue Stats stats,
+                             @DefaultValue Outbox outbox, @DefaultValue ResponseCache responseCache,
+                             @DefaultValue Replicas replicas, @DefaultValue Partitions partitions,
+                             @DefaultValue Pages pages) {
+
+    public record Min(@DefaultValue("18") int age) {
+    }
+
+    public record Phone(@DefaultValue("UA") String region, @DefaultValue("10000") int cacheSize) {
+    }
+
+    public record BulkImport(@DefaultValue("500") int batchSize) {
+    }
+
+    public record BatchGet(@DefaultValue("10000") int maxIds, @DefaultValue("1000") int chunkSize) {
+    }
+
+    public record Stats(@DefaultValue("PT5M") Duration refreshInterval, @DefaultValue("10") int ageBucketYears) {
+    }
+
+    // file is where FileUserEventSink appends events, no file sink without it
+    public record Outbox(@DefaultValue("PT1S") Duration relayInterval, @DefaultValue("1000") int batchSize,
+                         String file) {
+    }
+
+    // maxSize bounds each response cache; bodies of compressionMinSize and more are stored gzipped
+    public record ResponseCache(@DefaultValue("32MB") DataSize maxSize, @DefaultValue("PT10M") Duration ttl,
+                                @DefaultValue("2KB") DataSize compressionMinSize, @DefaultValue("false") boolean offHeap) {
+    }
+
+    // urls of read replicas, reached with the primary's credentials; no routing without them
+    public record Replicas(@DefaultValue List<String> urls, @DefaultValue("PT2S") Duration readYourWritesWindow) {
+    }
+
+    // birth dates up to ahead from today get a decade partition; later ones land in users_default
+    public record Partitions(@DefaultValue("PT24H") Duration maintenanceInterval, @DefaultValue("P10Y") Period ahead) {
+    }
+
+    // the largest size= the birthdate and name searches accept
+    public record Pages(@DefaultValue("1000") int maxSize) {
+    }
+}
@@ -0,0 +1,17 @@
+package ua.com.andromeda.testassignment.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+@Configuration
+public class ValidationConfig {
+
+    // Hibernate would otherwise build its own validator factory on pre-persist/pre-update,
+    // which cannot create constraint validators that depend on Spring beans
+    @Bean
+    public HibernatePropertiesCustomizer validatorFactoryCustomizer(LocalValidatorFactoryBean validatorFactory) {
+        return properties -> properties.put("jakarta.persistence.validation.factory", validatorFactory);
+    }
+}
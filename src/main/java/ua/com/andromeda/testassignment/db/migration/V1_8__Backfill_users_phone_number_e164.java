@@ -0,0 +1,81 @@
+package ua.com.andromeda.testassignment.db.migration;
+
+import lombok.RequiredArgsConstructor;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// E.164 numbers can only be computed with libphonenumber, so the backfill cannot be plain SQL.
+// Like the birth date backfill it walks the table by primary key and commits every batch.
+@Component
+@RequiredArgsConstructor
+public class V1_8__Backfill_users_phone_number_e164 extends BaseJavaMigration {
+    private static final int BATCH_SIZE = 10_000;
+    private static final String SELECT_BATCH = "SELECT id, phone_number FROM users " +
+            "WHERE id > ? AND phone_number IS NOT NULL AND phone_number_e164 IS NULL " +
+            "ORDER BY id LIMIT " + BATCH_SIZE;
+    private static final String UPDATE_E164 = "UPDATE users SET phone_number_e164 = ? WHERE id = ?";
+
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            UUID lastId = new UUID(0L, 0L);
+            Map<UUID, String> batch;
+            do {
+                batch = selectBatch(connection, lastId);
+                updateBatch(connection, batch);
+                connection.commit();
+                for (UUID id : batch.keySet()) {
+                    lastId = id;
+                }
+            } while (batch.size() == BATCH_SIZE);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private Map<UUID, String> selectBatch(Connection connection, UUID lastId) throws SQLException {
+        Map<UUID, String> batch = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_BATCH)) {
+            statement.setObject(1, lastId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    batch.put(resultSet.getObject(1, UUID.class), resultSet.getString(2));
+                }
+            }
+        }
+        return batch;
+    }
+
+    private void updateBatch(Connection connection, Map<UUID, String> batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_E164)) {
+            for (Map.Entry<UUID, String> entry : batch.entrySet()) {
+                String e164 = phoneNumberNormalizer.toE164(entry.getValue()).orElse(null);
+                if (e164 == null) continue;
+                statement.setString(1, e164);
+                statement.setObject(2, entry.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
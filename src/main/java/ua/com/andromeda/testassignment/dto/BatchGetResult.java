@@ -0,0 +1,10 @@
+package ua.com.andromeda.testassignment.dto;
+
+import ua.com.andromeda.testassignment.user.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public record BatchGetResult(Map<UUID, User> users, List<String> missing) {
+}
@@ -0,0 +1,18 @@
+package ua.com.andromeda.testassignment.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BulkImportResult(int imported, int failed, List<RecordResult> results) {
+
+    public record RecordResult(int index, UUID id, String error) {
+
+        public static RecordResult imported(int index, UUID id) {
+            return new RecordResult(index, id, null);
+        }
+
+        public static RecordResult failed(int index, String error) {
+            return new RecordResult(index, null, error);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ua.com.andromeda.testassignment.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+// the fields of a serialized Page that clients use, without the pageable and sort metadata
+public record CompactPage<T>(List<T> content, int number, int size, long totalElements, int totalPages) {
+
+    public static <T> CompactPage<T> of(Page<T> page) {
+        return new CompactPage<>(page.getContent(), page.getNumber(), page.getSize(), page.getTotalElements(),
+                page.getTotalPages());
+    }
+}
@@ -0,0 +1,6 @@
+package ua.com.andromeda.testassignment.dto;
+
+import java.util.List;
+
+public record CursorPage<T>(List<T> content, String next) {
+}
@@ -0,0 +1,10 @@
+package ua.com.andromeda.testassignment.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+// refreshedAt is when the counts were taken, null until this instance's first refresh;
+// byBirthDate is keyed by year or year-month, byAge by age bucket
+public record UserStats(Instant refreshedAt, long users, double withPhoneNumberShare, double withAddressShare,
+                        Map<String, Long> byBirthDate, Map<String, Long> byAge) {
+}
@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException() {
+        super("Invalid cursor");
+    }
+}
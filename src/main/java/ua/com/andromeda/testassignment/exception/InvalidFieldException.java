@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class InvalidFieldException extends RuntimeException {
+    public InvalidFieldException(String field) {
+        super("Invalid value of field '" + field + "'");
+    }
+}
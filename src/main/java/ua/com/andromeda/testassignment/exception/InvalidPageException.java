@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class InvalidPageException extends RuntimeException {
+    public InvalidPageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class InvalidSearchQueryException extends RuntimeException {
+    public InvalidSearchQueryException(int minLength) {
+        super("Search query must have at least " + minLength + " characters");
+    }
+}
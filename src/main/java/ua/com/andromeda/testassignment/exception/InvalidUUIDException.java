@@ -2,6 +2,7 @@ package ua.com.andromeda.testassignment.exception;
 
 public class InvalidUUIDException extends RuntimeException {
     public InvalidUUIDException() {
-        super("Invalid UUID");
+        // bad ids are client errors and come in floods, the stack trace would only cost CPU
+        super("Invalid UUID", null, false, false);
     }
 }
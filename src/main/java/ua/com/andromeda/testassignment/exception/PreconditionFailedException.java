@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException() {
+        super("User has been modified since it was read");
+    }
+}
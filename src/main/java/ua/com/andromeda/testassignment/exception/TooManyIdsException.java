@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class TooManyIdsException extends RuntimeException {
+    public TooManyIdsException(int maxIds) {
+        super("At most " + maxIds + " ids can be requested at once");
+    }
+}
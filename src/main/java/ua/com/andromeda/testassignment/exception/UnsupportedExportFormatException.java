@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class UnsupportedExportFormatException extends RuntimeException {
+    public UnsupportedExportFormatException(String format) {
+        super("Unsupported export format: " + format);
+    }
+}
@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class UnsupportedFieldException extends RuntimeException {
+    public UnsupportedFieldException(String field) {
+        super("Unsupported field: " + field);
+    }
+}
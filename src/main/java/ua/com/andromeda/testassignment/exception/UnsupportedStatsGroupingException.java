@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.exception;
+
+public class UnsupportedStatsGroupingException extends RuntimeException {
+    public UnsupportedStatsGroupingException(String groupBy) {
+        super("Unsupported stats grouping: " + groupBy);
+    }
+}
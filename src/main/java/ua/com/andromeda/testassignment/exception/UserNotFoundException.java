@@ -2,6 +2,6 @@ package ua.com.andromeda.testassignment.exception;
 
 public class UserNotFoundException extends RuntimeException {
     public UserNotFoundException(String id) {
-        super("User with id='" + id + "' not found");
+        super("User with id='" + id + "' not found", null, false, false);
     }
 }
@@ -0,0 +1,62 @@
+package ua.com.andromeda.testassignment.exception.handler;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// The same JSON Jackson writes for ErrorResponse, assembled from pre-encoded parts
+// for errors that are frequent enough for serialization to show up in profiles
+class PreEncodedErrorBody {
+    private static final byte[] TIMESTAMP_FIELD = "{\"timestamp\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MESSAGE_FIELD = "\",\"message\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpStatus status;
+    private final byte[] statusField;
+
+    PreEncodedErrorBody(HttpStatus status) {
+        this.status = status;
+        this.statusField = (",\"status\":" + status.value() + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // written straight to the response: Spring Data REST resolves exceptions with its own message converters,
+    // the first of which would write a byte[] body as a base64 JSON string
+    void write(HttpServletResponse response, String message) throws IOException {
+        byte[] body = encode(message);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // WebFlux writes a byte[] body as is
+    ResponseEntity<byte[]> toResponse(String message) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(encode(message));
+    }
+
+    // the message is written as is, so it must not contain anything JSON needs to escape
+    private byte[] encode(String message) {
+        byte[] timestamp = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.now())
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] messageBytes = message == null ? NULL : ('"' + message + '"').getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[TIMESTAMP_FIELD.length + timestamp.length + MESSAGE_FIELD.length
+                + messageBytes.length + statusField.length];
+        int position = append(body, 0, TIMESTAMP_FIELD);
+        position = append(body, position, timestamp);
+        position = append(body, position, MESSAGE_FIELD);
+        position = append(body, position, messageBytes);
+        append(body, position, statusField);
+        return body;
+    }
+
+    private static int append(byte[] target, int position, byte[] source) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+}
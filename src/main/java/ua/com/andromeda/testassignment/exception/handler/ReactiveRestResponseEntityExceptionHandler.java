@@ -0,0 +1,139 @@
+package ua.com.andromeda.testassignment.exception.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
+import org.springframework.web.server.MissingRequestValueException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import ua.com.andromeda.testassignment.exception.ErrorResponse;
+import ua.com.andromeda.testassignment.exception.InvalidCursorException;
+import ua.com.andromeda.testassignment.exception.InvalidFieldException;
+import ua.com.andromeda.testassignment.exception.InvalidPageException;
+import ua.com.andromeda.testassignment.exception.InvalidRangeException;
+import ua.com.andromeda.testassignment.exception.InvalidSearchQueryException;
+import ua.com.andromeda.testassignment.exception.InvalidUUIDException;
+import ua.com.andromeda.testassignment.exception.PreconditionFailedException;
+import ua.com.andromeda.testassignment.exception.TooManyIdsException;
+import ua.com.andromeda.testassignment.exception.UnsupportedExportFormatException;
+import ua.com.andromeda.testassignment.exception.UnsupportedFieldException;
+import ua.com.andromeda.testassignment.exception.UnsupportedStatsGroupingException;
+import ua.com.andromeda.testassignment.exception.UserNotFoundException;
+
+import java.time.LocalDateTime;
+
+// RestResponseEntityExceptionHandler for WebFlux, with the same statuses, bodies and error counters
+@Slf4j
+@Profile("reactive")
+@RestControllerAdvice
+public class ReactiveRestResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
+    private static final PreEncodedErrorBody BAD_REQUEST_BODY = new PreEncodedErrorBody(HttpStatus.BAD_REQUEST);
+    private static final PreEncodedErrorBody NOT_FOUND_BODY = new PreEncodedErrorBody(HttpStatus.NOT_FOUND);
+
+    private final MeterRegistry meterRegistry;
+    private final Counter invalidUUIDErrors;
+    private final Counter userNotFoundErrors;
+
+    public ReactiveRestResponseEntityExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.invalidUUIDErrors = errorCounter(InvalidUUIDException.class, HttpStatus.BAD_REQUEST);
+        this.userNotFoundErrors = errorCounter(UserNotFoundException.class, HttpStatus.NOT_FOUND);
+    }
+
+    @Override
+    protected Mono<ResponseEntity<Object>> handleWebExchangeBindException(WebExchangeBindException ex, HttpHeaders headers,
+                                                                         HttpStatusCode status, ServerWebExchange exchange) {
+        String message = ex.getBindingResult().getFieldError().getDefaultMessage();
+        ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), message, status.value());
+        return handleExceptionInternal(ex, errorResponse, new HttpHeaders(), HttpStatus.BAD_REQUEST, exchange);
+    }
+
+    // worded like Spring MVC's MissingServletRequestParameterException
+    @Override
+    protected Mono<ResponseEntity<Object>> handleMissingRequestValueException(MissingRequestValueException ex,
+                                                                             HttpHeaders headers, HttpStatusCode status,
+                                                                             ServerWebExchange exchange) {
+        if ("query parameter".equals(ex.getLabel())) {
+            ex.getBody().setDetail("Required parameter '" + ex.getName() + "' is not present.");
+        }
+        return super.handleMissingRequestValueException(ex, headers, status, exchange);
+    }
+
+    @ExceptionHandler(InvalidUUIDException.class)
+    protected ResponseEntity<byte[]> handleConflict(InvalidUUIDException ex) {
+        invalidUUIDErrors.increment();
+        return BAD_REQUEST_BODY.toResponse(ex.getMessage());
+    }
+
+    @ExceptionHandler(UserNotFoundException.class)
+    protected ResponseEntity<byte[]> handleConflict(UserNotFoundException ex) {
+        userNotFoundErrors.increment();
+        return NOT_FOUND_BODY.toResponse(ex.getMessage());
+    }
+
+    @ExceptionHandler({InvalidRangeException.class, InvalidCursorException.class,
+            UnsupportedExportFormatException.class, InvalidFieldException.class, TooManyIdsException.class,
+            InvalidSearchQueryException.class, UnsupportedStatsGroupingException.class,
+            UnsupportedFieldException.class, InvalidPageException.class})
+    protected Mono<ResponseEntity<Object>> handleConflict(RuntimeException ex, ServerWebExchange exchange) {
+        return handleConflict(ex, ex.getMessage(), exchange, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    protected Mono<ResponseEntity<Object>> handleConflict(PreconditionFailedException ex, ServerWebExchange exchange) {
+        return handleConflict(ex, ex.getMessage(), exchange, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    protected Mono<ResponseEntity<Object>> handleConflict(OptimisticLockingFailureException ex,
+                                                          ServerWebExchange exchange) {
+        return handleConflict(ex, "User has been modified concurrently", exchange, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    protected Mono<ResponseEntity<Object>> handleConflict(ConstraintViolationException ex, ServerWebExchange exchange) {
+        String message = ex.getConstraintViolations() == null || ex.getConstraintViolations().isEmpty()
+                ? ex.getMessage()
+                : ex.getConstraintViolations().iterator().next().getMessage();
+        return handleConflict(ex, message, exchange, HttpStatus.BAD_REQUEST);
+    }
+
+    private Mono<ResponseEntity<Object>> handleConflict(RuntimeException ex, String errMessage,
+                                                        ServerWebExchange exchange, HttpStatus status) {
+        ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), errMessage, status.value());
+        return handleExceptionInternal(ex, errorResponse, new HttpHeaders(), status, exchange);
+    }
+
+    @ExceptionHandler(Exception.class)
+    protected Mono<ResponseEntity<Object>> handleConflict(Exception ex, ServerWebExchange exchange) {
+        log.error("Unhandled exception", ex);
+        HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
+        ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), "Something went wrong", status.value());
+        return handleExceptionInternal(ex, errorResponse, new HttpHeaders(), status, exchange);
+    }
+
+    @Override
+    protected Mono<ResponseEntity<Object>> handleExceptionInternal(Exception ex, Object body, HttpHeaders headers,
+                                                                   HttpStatusCode status, ServerWebExchange exchange) {
+        errorCounter(ex.getClass(), status).increment();
+        return super.handleExceptionInternal(ex, body, headers, status, exchange);
+    }
+
+    private Counter errorCounter(Class<? extends Exception> exceptionType, HttpStatusCode statusCode) {
+        return meterRegistry.counter("user.errors",
+                "exception", exceptionType.getSimpleName(),
+                "status", String.valueOf(statusCode.value())
+        );
+    }
+}
@@ -1,5 +1,12 @@
 package ua.com.andromeda.testassignment.exception.handler;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -10,15 +17,38 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 import ua.com.andromeda.testassignment.exception.ErrorResponse;
+import ua.com.andromeda.testassignment.exception.InvalidCursorException;
+import ua.com.andromeda.testassignment.exception.InvalidFieldException;
+import ua.com.andromeda.testassignment.exception.InvalidPageException;
 import ua.com.andromeda.testassignment.exception.InvalidRangeException;
+import ua.com.andromeda.testassignment.exception.InvalidSearchQueryException;
 import ua.com.andromeda.testassignment.exception.InvalidUUIDException;
+import ua.com.andromeda.testassignment.exception.PreconditionFailedException;
+import ua.com.andromeda.testassignment.exception.TooManyIdsException;
+import ua.com.andromeda.testassignment.exception.UnsupportedExportFormatException;
+import ua.com.andromeda.testassignment.exception.UnsupportedFieldException;
+import ua.com.andromeda.testassignment.exception.UnsupportedStatsGroupingException;
 import ua.com.andromeda.testassignment.exception.UserNotFoundException;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 
+@Slf4j
+@Profile("!reactive")
 @RestControllerAdvice
 public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
+    private static final PreEncodedErrorBody BAD_REQUEST_BODY = new PreEncodedErrorBody(HttpStatus.BAD_REQUEST);
+    private static final PreEncodedErrorBody NOT_FOUND_BODY = new PreEncodedErrorBody(HttpStatus.NOT_FOUND);
 
+    private final MeterRegistry meterRegistry;
+    private final Counter invalidUUIDErrors;
+    private final Counter userNotFoundErrors;
+
+    public RestResponseEntityExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.invalidUUIDErrors = errorCounter(InvalidUUIDException.class, HttpStatus.BAD_REQUEST);
+        this.userNotFoundErrors = errorCounter(UserNotFoundException.class, HttpStatus.NOT_FOUND);
+    }
 
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
@@ -27,30 +57,80 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
         return handleExceptionInternal(ex, errorResponse, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
     }
 
-    @ExceptionHandler({InvalidRangeException.class, InvalidUUIDException.class})
+    // bad and unknown ids are the most frequent errors, so they skip handleExceptionInternal and Jackson
+    @ExceptionHandler(InvalidUUIDException.class)
+    protected void handleConflict(InvalidUUIDException ex, HttpServletResponse response) throws IOException {
+        invalidUUIDErrors.increment();
+        BAD_REQUEST_BODY.write(response, ex.getMessage());
+    }
+
+    // the message only contains an id that already passed the UUID format check
+    @ExceptionHandler(UserNotFoundException.class)
+    protected void handleConflict(UserNotFoundException ex, HttpServletResponse response) throws IOException {
+        userNotFoundErrors.increment();
+        NOT_FOUND_BODY.write(response, ex.getMessage());
+    }
+
+    @ExceptionHandler({InvalidRangeException.class, InvalidCursorException.class,
+            UnsupportedExportFormatException.class, InvalidFieldException.class, TooManyIdsException.class,
+            InvalidSearchQueryException.class, UnsupportedStatsGroupingException.class,
+            UnsupportedFieldException.class, InvalidPageException.class})
     protected ResponseEntity<Object> handleConflict(RuntimeException ex, WebRequest request) {
         return handleConflict(ex, request, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    protected ResponseEntity<Object> handleConflict(PreconditionFailedException ex, WebRequest request) {
+        return handleConflict(ex, request, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // another update was committed between reading the stored user and writing it back
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    protected ResponseEntity<Object> handleConflict(OptimisticLockingFailureException ex, WebRequest request) {
+        return handleConflict(ex, "User has been modified concurrently", request, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    protected ResponseEntity<Object> handleConflict(ConstraintViolationException ex, WebRequest request) {
+        String message = ex.getConstraintViolations() == null || ex.getConstraintViolations().isEmpty()
+                ? ex.getMessage()
+                : ex.getConstraintViolations().iterator().next().getMessage();
+        return handleConflict(ex, message, request, HttpStatus.BAD_REQUEST);
+    }
+
     private ResponseEntity<Object> handleConflict(RuntimeException ex, WebRequest request, HttpStatus status) {
-        String errMessage = ex.getMessage();
+        return handleConflict(ex, ex.getMessage(), request, status);
+    }
+
+    private ResponseEntity<Object> handleConflict(RuntimeException ex, String errMessage, WebRequest request,
+                                                  HttpStatus status) {
         LocalDateTime timestamp = LocalDateTime.now();
         ErrorResponse errorResponse = new ErrorResponse(timestamp, errMessage, status.value());
         return handleExceptionInternal(ex, errorResponse, new HttpHeaders(), status, request);
     }
 
-    @ExceptionHandler(UserNotFoundException.class)
-    protected ResponseEntity<Object> handleConflict(UserNotFoundException ex, WebRequest request) {
-        return handleConflict(ex, request, HttpStatus.NOT_FOUND);
-    }
-
     @ExceptionHandler(Exception.class)
     protected ResponseEntity<Object> handleConflict(Exception ex, WebRequest request) {
-        ex.printStackTrace();
+        log.error("Unhandled exception", ex);
         String errMessage = "Something went wrong";
         HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
         LocalDateTime timestamp = LocalDateTime.now();
         ErrorResponse errorResponse = new ErrorResponse(timestamp, errMessage, status.value());
         return handleExceptionInternal(ex, errorResponse, new HttpHeaders(), status, request);
     }
+
+    // every handled error, including Spring MVC's own, ends up here
+    @Override
+    protected ResponseEntity<Object> handleExceptionInternal(Exception ex, Object body, HttpHeaders headers,
+                                                             HttpStatusCode statusCode, WebRequest request) {
+        errorCounter(ex.getClass(), statusCode).increment();
+        return super.handleExceptionInternal(ex, body, headers, statusCode, request);
+    }
+
+    private Counter errorCounter(Class<? extends Exception> exceptionType, HttpStatusCode statusCode) {
+        return meterRegistry.counter("user.errors",
+                "exception", exceptionType.getSimpleName(),
+                "status", String.valueOf(statusCode.value())
+        );
+    }
 }
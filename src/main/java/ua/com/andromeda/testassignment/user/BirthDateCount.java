@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.user;
+
+import java.time.LocalDate;
+
+// a row of user_birth_date_stats
+public record BirthDateCount(LocalDate birthDate, long users, long withPhoneNumber, long withAddress) {
+}
@@ -0,0 +1,39 @@
+package ua.com.andromeda.testassignment.user;
+
+import ua.com.andromeda.testassignment.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+public record BirthDateCursor(LocalDate birthDate, UUID id) {
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+    private static final String SEPARATOR = "|";
+
+    // positioned before every user born on 'from', so the first slice uses the same seek query
+    public static BirthDateCursor before(LocalDate from) {
+        return new BirthDateCursor(from, MIN_ID);
+    }
+
+    public static BirthDateCursor after(UserView user) {
+        return new BirthDateCursor(user.birthDate(), user.id());
+    }
+
+    public static BirthDateCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            LocalDate birthDate = LocalDate.parse(decoded.substring(0, separatorIndex));
+            UUID id = UUID.fromString(decoded.substring(separatorIndex + 1));
+            return new BirthDateCursor(birthDate, id);
+        } catch (RuntimeException ex) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    public String encode() {
+        String raw = birthDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
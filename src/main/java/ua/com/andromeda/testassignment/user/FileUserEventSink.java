@@ -0,0 +1,40 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.SneakyThrows;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ua.com.andromeda.testassignment.config.UserProperties;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Appends one JSON line per event to user.outbox.file
+@Component
+@ConditionalOnProperty("user.outbox.file")
+public class FileUserEventSink implements UserEventSink {
+    private final Path file;
+    private final ObjectWriter writer;
+
+    public FileUserEventSink(UserProperties userProperties, ObjectMapper objectMapper) {
+        this.file = Path.of(userProperties.outbox().file());
+        this.writer = objectMapper.writerFor(UserEvent.class);
+    }
+
+    @Override
+    @SneakyThrows
+    public void publish(List<UserEvent> events) {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (UserEvent event : events) {
+                out.write(writer.writeValueAsString(event));
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ua.com.andromeda.testassignment.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Makes every event available to @EventListener methods taking a UserEvent
+@Component
+@RequiredArgsConstructor
+public class InProcessUserEventSink implements UserEventSink {
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @Override
+    public void publish(List<UserEvent> events) {
+        events.forEach(applicationEventPublisher::publishEvent);
+    }
+}
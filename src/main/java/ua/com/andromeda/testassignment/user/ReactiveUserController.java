@@ -0,0 +1,247 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.BatchGetResult;
+import ua.com.andromeda.testassignment.dto.BulkImportResult;
+import ua.com.andromeda.testassignment.dto.CompactPage;
+import ua.com.andromeda.testassignment.dto.CursorPage;
+import ua.com.andromeda.testassignment.dto.Dto;
+import ua.com.andromeda.testassignment.dto.UserStats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// The endpoints of UserController on WebFlux, with the same requests, responses and errors
+@RestController
+@Profile("reactive")
+@RequestMapping("/users")
+@RequiredArgsConstructor
+public class ReactiveUserController {
+    // users encoded into one chunk of an export response
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    private static final int IMPORT_BUFFER_SIZE = 64 * 1024;
+    // body chunks held ahead of the pipe
+    private static final int IMPORT_PREFETCH = 4;
+
+    private final ReactiveUserService reactiveUserService;
+    private final UserImportService userImportService;
+    private final UserStatsService userStatsService;
+    private final ObjectMapper objectMapper;
+    private final UserProperties userProperties;
+
+    @GetMapping("/{userId}")
+    public Mono<ResponseEntity<Dto<User>>> findById(@PathVariable String userId, ServerWebExchange exchange) {
+        // revalidation only reads the version, the user is loaded when it has changed
+        Mono<Boolean> notModified = exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH) == null
+                ? Mono.just(false)
+                : reactiveUserService.findVersionById(userId)
+                .map(version -> exchange.checkNotModified(UserETags.of(version)));
+        return notModified.flatMap(matched -> matched
+                ? Mono.empty()
+                : reactiveUserService.findById(userId).map(foundedUser ->
+                        ResponseEntity.ok().eTag(UserETags.of(foundedUser.getVersion())).body(new Dto<>(foundedUser))));
+    }
+
+    @PostMapping("/batch-get")
+    public Mono<ResponseEntity<Dto<BatchGetResult>>> findAllById(@RequestBody List<String> ids) {
+        return reactiveUserService.findAllById(ids).map(result -> ResponseEntity.ok(new Dto<>(result)));
+    }
+
+    // statistics are served from memory, except before the first refresh
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<Dto<UserStats>>> getStats(
+            @RequestParam(required = false, defaultValue = "year") String groupBy) {
+        UserStatsGrouping grouping = UserStatsGrouping.of(groupBy);
+        return Mono.fromCallable(() -> userStatsService.getStats(grouping))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(stats -> ResponseEntity.ok(new Dto<>(stats)));
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<Dto<CursorPage<SearchHit>>>> search(
+            @RequestParam String q,
+            @RequestParam(required = false, defaultValue = "10") int size,
+            @RequestParam(required = false, defaultValue = "") String cursor) {
+        UserService.checkPageSize(size, userProperties.pages().maxSize());
+        SearchCursor after = cursor.isEmpty() ? null : SearchCursor.decode(cursor, q);
+        return reactiveUserService.search(q, after, size).map(hits -> {
+            List<SearchHit> content = hits.getContent();
+            String next = hits.hasNext()
+                    ? SearchCursor.after(content.get(content.size() - 1)).encode(q)
+                    : null;
+            return ResponseEntity.ok(new Dto<>(new CursorPage<>(content, next)));
+        });
+    }
+
+    @GetMapping("/search/birthDate/between")
+    public Mono<ResponseEntity<Dto<CompactPage<UserView>>>> findAllByBirthDateBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false, defaultValue = "10") int size,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false, defaultValue = "") String fields) {
+        UserService.checkPage(page, size, userProperties.pages().maxSize());
+        return reactiveUserService.findAllByBirthDateBetween(from, to, UserField.parse(fields), PageRequest.of(page, size))
+                .map(foundedUsers -> ResponseEntity.ok(new Dto<>(CompactPage.of(foundedUsers))));
+    }
+
+    @GetMapping(value = "/search/birthDate/between", params = "cursor")
+    public Mono<ResponseEntity<Dto<CursorPage<UserView>>>> findAllByBirthDateBetweenAfter(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false, defaultValue = "10") int size,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "") String fields) {
+        UserService.checkPageSize(size, userProperties.pages().maxSize());
+        BirthDateCursor after = cursor.isEmpty() ? null : BirthDateCursor.decode(cursor);
+        return reactiveUserService.findAllByBirthDateBetween(from, to, UserField.parse(fields), after, size)
+                .map(foundedUsers -> ResponseEntity.ok(new Dto<>(toCursorPage(foundedUsers))));
+    }
+
+    private CursorPage<UserView> toCursorPage(Slice<UserView> slice) {
+        List<UserView> content = slice.getContent();
+        String next = slice.hasNext()
+                ? BirthDateCursor.after(content.get(content.size() - 1)).encode()
+                : null;
+        return new CursorPage<>(content, next);
+    }
+
+    // chunks are encoded as the client reads them, and each chunk requests the next users from the database
+    @GetMapping("/export")
+    public Mono<Void> export(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             @RequestParam(required = false, defaultValue = "ndjson") String format,
+                             ServerHttpResponse response) {
+        UserExportFormat exportFormat = UserExportFormat.of(format);
+        Flux<User> users = reactiveUserService.exportByBirthDateBetween(from, to);
+        Flux<DataBuffer> body = Flux.using(
+                () -> new ExportEncoder(exportFormat, objectMapper),
+                encoder -> users.buffer(EXPORT_CHUNK_SIZE)
+                        .map(encoder::encode)
+                        .concatWith(Mono.fromCallable(encoder::finish))
+                        .filter(bytes -> bytes.length > 0)
+                        .map(bytes -> response.bufferFactory().wrap(bytes)),
+                ExportEncoder::close);
+        response.getHeaders().setContentType(MediaType.parseMediaType(exportFormat.getMediaType()));
+        return response.writeWith(body);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Dto<User>>> save(@RequestBody @Valid User user) {
+        return reactiveUserService.save(user).map(savedUser -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.LOCATION, "/users/" + savedUser.getId());
+            return new ResponseEntity<>(new Dto<>(savedUser), headers, HttpStatus.OK);
+        });
+    }
+
+    // the body is piped into UserImportService as it arrives, so it is never held in memory as a whole
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Dto<BulkImportResult>>> importUsers(@RequestBody Flux<DataBuffer> users) {
+        return Mono.using(
+                () -> {
+                    PipedInputStream in = new PipedInputStream(IMPORT_BUFFER_SIZE);
+                    PipedOutputStream out = new PipedOutputStream(in);
+                    // writing to the pipe blocks while the importer is behind, so not on the event loop
+                    DataBufferUtils.write(users.publishOn(Schedulers.boundedElastic(), IMPORT_PREFETCH), out)
+                            .map(DataBufferUtils::release)
+                            .doFinally(signal -> closeQuietly(out))
+                            .subscribe();
+                    return in;
+                },
+                in -> Mono.fromCallable(() -> userImportService.importUsers(in))
+                        .subscribeOn(Schedulers.boundedElastic()),
+                ReactiveUserController::closeQuietly)
+                .map(result -> ResponseEntity.ok(new Dto<>(result)));
+    }
+
+    @PutMapping
+    public Mono<ResponseEntity<Dto<User>>> update(@RequestBody @Valid User user,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return reactiveUserService.update(user, UserETags.parseIfMatch(ifMatch)).map(savedUser ->
+                ResponseEntity.ok().eTag(UserETags.of(savedUser.getVersion())).body(new Dto<>(savedUser)));
+    }
+
+    @PatchMapping("/{userId}")
+    public Mono<ResponseEntity<Dto<User>>> partialUpdate(@PathVariable String userId,
+                                                         @RequestBody Map<String, Object> fields,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return reactiveUserService.partialUpdate(userId, fields, UserETags.parseIfMatch(ifMatch)).map(savedUser ->
+                ResponseEntity.ok().eTag(UserETags.of(savedUser.getVersion())).body(new Dto<>(savedUser)));
+    }
+
+    @DeleteMapping("{userId}")
+    public Mono<ResponseEntity<Map<String, String>>> delete(@PathVariable String userId) {
+        return reactiveUserService.delete(userId).thenReturn(new ResponseEntity<>(HttpStatus.ACCEPTED));
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    // one SequenceWriter for the whole export, so separators and the CSV header come out as in UserController
+    private static class ExportEncoder {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final SequenceWriter writer;
+
+        ExportEncoder(UserExportFormat format, ObjectMapper objectMapper) throws IOException {
+            this.writer = format.writer(objectMapper).writeValues(buffer);
+        }
+
+        byte[] encode(List<User> users) {
+            try {
+                writer.writeAll(users);
+                writer.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return drain();
+        }
+
+        byte[] finish() throws IOException {
+            writer.close();
+            return drain();
+        }
+
+        void close() {
+            closeQuietly(writer);
+        }
+
+        private byte[] drain() {
+            byte[] bytes = buffer.toByteArray();
+            buffer.reset();
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package ua.com.andromeda.testassignment.user;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ua.com.andromeda.testassignment.config.CacheConfig;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// The queries of UserRepository and UserRepositoryImpl on R2DBC, sharing the users cache with them
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveUserRepository {
+    // rows the driver fetches per round trip while streaming, so a slow reader holds back the query
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String COLUMNS = UserRepositoryImpl.COLUMNS;
+
+    private final DatabaseClient databaseClient;
+    private final CacheManager cacheManager;
+
+    // a missing user is cached as null, like findCachedById does
+    public Mono<User> findCachedById(UUID id) {
+        Cache.ValueWrapper cached = cache().get(id);
+        if (cached != null) {
+            return Mono.justOrEmpty((User) cached.get());
+        }
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUser)
+                .one()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .doOnNext(user -> cache().put(id, user.orElse(null)))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public Mono<Map<UUID, User>> findAllCachedById(List<UUID> ids) {
+        Map<UUID, User> users = new HashMap<>();
+        List<UUID> uncachedIds = new ArrayList<>();
+        for (UUID id : ids) {
+            Cache.ValueWrapper cached = cache().get(id);
+            if (cached == null) {
+                uncachedIds.add(id);
+            } else if (cached.get() != null) {
+                users.put(id, (User) cached.get());
+            }
+        }
+        if (uncachedIds.isEmpty()) {
+            return Mono.just(users);
+        }
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id = ANY(:ids)")
+                .bind("ids", uncachedIds.toArray(UUID[]::new))
+                .map(ReactiveUserRepository::toUser)
+                .all()
+                .doOnNext(user -> users.put(user.getId(), user))
+                .then(Mono.fromSupplier(() -> {
+                    uncachedIds.forEach(id -> cache().put(id, users.get(id)));
+                    return users;
+                }));
+    }
+
+    public Mono<Long> findVersionById(UUID id) {
+        return databaseClient.sql("SELECT version FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsById(UUID id) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM users WHERE id = :id)")
+                .bind("id", id)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    // the id is generated here, like GenerationType.UUID does
+    public Mono<User> insert(User user) {
+        UUID id = UUID.randomUUID();
+        GenericExecuteSpec spec = databaseClient.sql("INSERT INTO users (" + COLUMNS + ") VALUES (:id, :email, " +
+                        ":firstName, :lastName, :birthDate, :address, :phoneNumber, :phoneNumberE164, 0) " +
+                        "RETURNING " + COLUMNS)
+                .bind("id", id);
+        return bindProperties(spec, user)
+                .map(ReactiveUserRepository::toUser)
+                .one();
+    }
+
+    // every property is written; versions restricts the update like updateFields does
+    public Mono<User> update(User user, Set<Long> versions) {
+        if (versions != null && versions.isEmpty()) {
+            return Mono.empty();
+        }
+        String sql = "UPDATE users SET email = :email, first_name = :firstName, last_name = :lastName, " +
+                "birth_date = :birthDate, address = :address, phone_number = :phoneNumber, " +
+                "phone_number_e164 = :phoneNumberE164, version = version + 1 WHERE id = :id" +
+                (versions == null ? "" : " AND version = ANY(:versions)") + " RETURNING " + COLUMNS;
+        GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", user.getId());
+        if (versions != null) {
+            spec = spec.bind("versions", versions.toArray(Long[]::new));
+        }
+        return bindProperties(spec, user)
+                .map(ReactiveUserRepository::toUser)
+                .one();
+    }
+
+    // see UserRepositoryImpl.updateFields
+    public Mono<User> updateFields(UUID id, Map<String, Object> values, Set<Long> versions) {
+        if (versions != null && versions.isEmpty()) {
+            return Mono.empty();
+        }
+        String condition = "id = :id" + (versions == null ? "" : " AND version = ANY(:versions)");
+        String sql;
+        if (values.isEmpty()) {
+            sql = "SELECT " + COLUMNS + " FROM users WHERE " + condition;
+        } else {
+            StringJoiner assignments = new StringJoiner(", ");
+            values.keySet().forEach(property -> {
+                String column = UserRepositoryImpl.UPDATABLE_COLUMNS.get(property);
+                if (column == null) {
+                    throw new IllegalArgumentException("Property '" + property + "' cannot be updated");
+                }
+                assignments.add(column + " = :" + property);
+            });
+            assignments.add("version = version + 1");
+            sql = "UPDATE users SET " + assignments + " WHERE " + condition + " RETURNING " + COLUMNS;
+        }
+        GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", id);
+        if (versions != null) {
+            spec = spec.bind("versions", versions.toArray(Long[]::new));
+        }
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            spec = bind(spec, value.getKey(), value.getValue(), UserField.ofProperty(value.getKey()).getType());
+        }
+        return spec.map(ReactiveUserRepository::toUser)
+                .one();
+    }
+
+    // insert, update and updateFields leave the cached user alone: they run in the caller's transaction, which
+    // evicts it once it commits, so a read in between cannot cache the old row again
+    public void evict(User user) {
+        if (user != null) {
+            evict(user.getId());
+        }
+    }
+
+    public Mono<Void> deleteById(UUID id) {
+        return databaseClient.sql("DELETE FROM users WHERE id = :id")
+                .bind("id", id)
+                .then()
+                .doOnSuccess(ignored -> evict(id));
+    }
+
+    // the same caches the @CacheEvict annotations of UserRepository drop: the user, its response and every page
+    private void evict(UUID id) {
+        cache().evict(id);
+        cacheManager.getCache(CacheConfig.USER_RESPONSES_CACHE).evict(id);
+        cacheManager.getCache(CacheConfig.USER_PAGE_RESPONSES_CACHE).clear();
+    }
+
+    public Flux<UserView> findViewsByBirthDateBetween(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                      long offset, int limit) {
+        return databaseClient.sql("SELECT " + columns(fields) + " FROM users WHERE birth_date BETWEEN :from AND :to " +
+                        "ORDER BY birth_date, id LIMIT :limit OFFSET :offset")
+                .bind("from", from)
+                .bind("to", to)
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(row -> toView(row, fields))
+                .all();
+    }
+
+    public Mono<Long> countByBirthDateBetween(LocalDate from, LocalDate to) {
+        return databaseClient.sql("SELECT count(*) FROM users WHERE birth_date BETWEEN :from AND :to")
+                .bind("from", from)
+                .bind("to", to)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Flux<UserView> findViewsByBirthDateBetweenAfter(LocalDate from, LocalDate to, BirthDateCursor after,
+                                                           Set<UserField> fields, int limit) {
+        return databaseClient.sql("SELECT " + columns(fields) + " FROM users WHERE birth_date BETWEEN :from AND :to " +
+                        "AND (birth_date, id) > (:afterBirthDate, :afterId) ORDER BY birth_date, id LIMIT :limit")
+                .bind("from", from)
+                .bind("to", to)
+                .bind("afterBirthDate", after.birthDate())
+                .bind("afterId", after.id())
+                .bind("limit", limit)
+                .map(row -> toView(row, fields))
+                .all();
+    }
+
+    // rows are fetched as they are requested, so memory use does not grow with the range
+    public Flux<User> streamAllByBirthDateBetween(LocalDate from, LocalDate to) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE birth_date BETWEEN :from AND :to " +
+                        "ORDER BY birth_date, id")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .bind("from", from)
+                .bind("to", to)
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.USERS_CACHE);
+    }
+
+    private static GenericExecuteSpec bindProperties(GenericExecuteSpec spec, User user) {
+        spec = bind(spec, "email", user.getEmail(), String.class);
+        spec = bind(spec, "firstName", user.getFirstName(), String.class);
+        spec = bind(spec, "lastName", user.getLastName(), String.class);
+        spec = bind(spec, "birthDate", user.getBirthDate(), LocalDate.class);
+        spec = bind(spec, "address", user.getAddress(), String.class);
+        spec = bind(spec, "phoneNumber", user.getPhoneNumber(), String.class);
+        return bind(spec, "phoneNumberE164", user.getPhoneNumberE164(), String.class);
+    }
+
+    // R2DBC needs the type of a null parameter
+    private static GenericExecuteSpec bind(GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static String columns(Set<UserField> fields) {
+        return fields.stream().map(UserField::getColumn).collect(Collectors.joining(", "));
+    }
+
+    private static User toUser(Readable row) {
+        User user = new User();
+        user.setId(row.get("id", UUID.class));
+        user.setEmail(row.get("email", String.class));
+        user.setFirstName(row.get("first_name", String.class));
+        user.setLastName(row.get("last_name", String.class));
+        user.setBirthDate(row.get("birth_date", LocalDate.class));
+        user.setAddress(row.get("address", String.class));
+        user.setPhoneNumber(row.get("phone_number", String.class));
+        user.setPhoneNumberE164(row.get("phone_number_e164", String.class));
+        user.setVersion(row.get("version", Long.class));
+        return user;
+    }
+
+    private static UserView toView(Readable row, Set<UserField> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (UserField field : fields) {
+            values.put(field.getProperty(), row.get(field.getColumn(), field.getType()));
+        }
+        return new UserView(values);
+    }
+}
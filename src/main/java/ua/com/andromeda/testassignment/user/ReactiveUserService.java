@@ -0,0 +1,173 @@
+package ua.com.andromeda.testassignment.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.BatchGetResult;
+import ua.com.andromeda.testassignment.exception.PreconditionFailedException;
+import ua.com.andromeda.testassignment.exception.TooManyIdsException;
+import ua.com.andromeda.testassignment.exception.UserNotFoundException;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// UserService on ReactiveUserRepository. Search still runs on UserService, on threads that may block
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveUserService {
+    private static final LocalDate EARLIEST_BIRTH_DATE = LocalDate.of(1, 1, 1);
+
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final UserService userService;
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+    private final TransactionalOperator transactionalOperator;
+    private final UserProperties userProperties;
+
+    public Mono<User> findById(String id) {
+        return Mono.defer(() -> reactiveUserRepository.findCachedById(UserService.parseId(id)))
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)));
+    }
+
+    public Mono<BatchGetResult> findAllById(List<String> ids) {
+        return Mono.defer(() -> {
+            UserProperties.BatchGet batchGet = userProperties.batchGet();
+            if (ids.size() > batchGet.maxIds()) {
+                throw new TooManyIdsException(batchGet.maxIds());
+            }
+            Map<String, UUID> requestedIds = new LinkedHashMap<>();
+            for (String id : ids) {
+                requestedIds.computeIfAbsent(id, UserService::parseId);
+            }
+            List<UUID> uuids = requestedIds.values().stream().distinct().toList();
+            return Flux.fromIterable(uuids)
+                    .buffer(batchGet.chunkSize())
+                    .concatMap(reactiveUserRepository::findAllCachedById)
+                    .collect(LinkedHashMap<UUID, User>::new, Map::putAll)
+                    .map(foundUsers -> {
+                        Map<UUID, User> users = new LinkedHashMap<>();
+                        List<String> missing = new ArrayList<>();
+                        requestedIds.forEach((id, uuid) -> {
+                            User user = foundUsers.get(uuid);
+                            if (user == null) {
+                                missing.add(id);
+                            } else {
+                                users.put(uuid, user);
+                            }
+                        });
+                        return new BatchGetResult(users, missing);
+                    });
+        });
+    }
+
+    public Mono<Long> findVersionById(String id) {
+        return Mono.defer(() -> reactiveUserRepository.findVersionById(UserService.parseId(id)))
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)));
+    }
+
+    // like saving an entity, a user with an id updates the stored user, if there is one
+    public Mono<User> save(User userToSave) {
+        return update(userToSave, null);
+    }
+
+    // like UserService.update, a user that is not stored yet is saved as a new one
+    public Mono<User> update(User userToUpdate, Set<Long> versions) {
+        userToUpdate.setPhoneNumberE164(phoneNumberNormalizer.toE164OrNull(userToUpdate.getPhoneNumber()));
+        Mono<User> insert = Mono.defer(() -> versions == null
+                ? reactiveUserRepository.insert(userToUpdate)
+                : Mono.error(new PreconditionFailedException()));
+        Mono<User> write = userToUpdate.getId() == null
+                ? insert
+                : reactiveUserRepository.update(userToUpdate, versions).switchIfEmpty(insert);
+        return transactionalOperator.transactional(write)
+                .doOnSuccess(reactiveUserRepository::evict);
+    }
+
+    public Mono<Void> delete(String id) {
+        return Mono.defer(() -> reactiveUserRepository.deleteById(UserService.parseId(id)));
+    }
+
+    public Mono<Page<UserView>> findAllByBirthDateBetween(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                          Pageable pageable) {
+        return Mono.defer(() -> {
+            UserService.checkRange(from, to);
+            return reactiveUserRepository.findViewsByBirthDateBetween(from, to, fields, pageable.getOffset(),
+                            pageable.getPageSize())
+                    .collectList()
+                    .flatMap(views -> {
+                        // the count is skipped when the page itself tells the total, see PageableExecutionUtils
+                        if (views.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !views.isEmpty())) {
+                            return Mono.just(new PageImpl<>(views, pageable, pageable.getOffset() + views.size()));
+                        }
+                        return reactiveUserRepository.countByBirthDateBetween(from, to)
+                                .map(total -> new PageImpl<>(views, pageable, total));
+                    });
+        });
+    }
+
+    public Mono<Slice<UserView>> findAllByBirthDateBetween(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                           BirthDateCursor after, int size) {
+        return Mono.defer(() -> {
+            UserService.checkRange(from, to);
+            BirthDateCursor cursor = after == null ? BirthDateCursor.before(from) : after;
+            // one extra row tells whether there is a next slice
+            return reactiveUserRepository.findViewsByBirthDateBetweenAfter(from, to, cursor, fields, size + 1)
+                    .collectList()
+                    .map(views -> {
+                        boolean hasNext = views.size() > size;
+                        return new SliceImpl<>(hasNext ? views.subList(0, size) : views, PageRequest.ofSize(size),
+                                hasNext);
+                    });
+        });
+    }
+
+    // the query runs on JDBC, see UserService.search
+    public Mono<Slice<SearchHit>> search(String query, SearchCursor after, int size) {
+        return Mono.fromCallable(() -> userService.search(query, after, size))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // users are emitted as the subscriber requests them, so a slow client holds back the query
+    public Flux<User> exportByBirthDateBetween(LocalDate from, LocalDate to) {
+        return Flux.defer(() -> {
+            LocalDate lowerBound = from == null ? EARLIEST_BIRTH_DATE : from;
+            LocalDate upperBound = to == null ? LocalDate.now() : to;
+            UserService.checkRange(lowerBound, upperBound);
+            return reactiveUserRepository.streamAllByBirthDateBetween(lowerBound, upperBound);
+        });
+    }
+
+    // see UserService.partialUpdate; an invalid merged user rolls the update back
+    public Mono<User> partialUpdate(String id, Map<String, Object> fields, Set<Long> versions) {
+        Mono<User> update = Mono.defer(() -> {
+            UUID uuid = UserService.parseId(id);
+            Map<String, Object> values = userService.toColumnValues(fields);
+            return reactiveUserRepository.updateFields(uuid, values, versions)
+                    .switchIfEmpty(Mono.defer(() -> versions == null
+                            ? Mono.error(new UserNotFoundException(id))
+                            : reactiveUserRepository.existsById(uuid).flatMap(exists -> Mono.error(exists
+                                    ? new PreconditionFailedException()
+                                    : new UserNotFoundException(id)))))
+                    .doOnNext(userService::validate);
+        });
+        return transactionalOperator.transactional(update)
+                .doOnSuccess(reactiveUserRepository::evict);
+    }
+}
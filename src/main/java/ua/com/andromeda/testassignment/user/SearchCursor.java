@@ -0,0 +1,52 @@
+package ua.com.andromeda.testassignment.user;
+
+import ua.com.andromeda.testassignment.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+public record SearchCursor(String term, SearchMatch match, String key, UUID id) {
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+    private static final String SEPARATOR = "|";
+
+    // positioned before every user whose field starts with the term
+    public static SearchCursor first(String term, SearchMatch match) {
+        return new SearchCursor(term, match, term, MIN_ID);
+    }
+
+    public static SearchCursor after(SearchHit hit) {
+        return new SearchCursor(hit.term(), hit.match(), hit.key(), hit.user().getId());
+    }
+
+    // the token carries the query it was issued for, so it cannot continue a search for another query
+    public static SearchCursor decode(String token, String query) {
+        String cursorQuery;
+        SearchCursor cursor;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // query, term and key may contain the separator, so they go last with their lengths
+            String[] parts = decoded.split("\\" + SEPARATOR, 5);
+            int queryLength = Integer.parseInt(parts[2]);
+            int termEnd = queryLength + Integer.parseInt(parts[3]);
+            cursorQuery = parts[4].substring(0, queryLength);
+            cursor = new SearchCursor(parts[4].substring(queryLength, termEnd), SearchMatch.valueOf(parts[0]),
+                    parts[4].substring(termEnd), UUID.fromString(parts[1]));
+        } catch (RuntimeException ex) {
+            throw new InvalidCursorException();
+        }
+        // a cursor for another query is rejected rather than ignoring q, and an empty term has no upper bound
+        if (!cursorQuery.equals(UserService.normalizeSearchQuery(query))
+                || cursor.term().length() < UserService.MIN_SEARCH_QUERY_LENGTH) {
+            throw new InvalidCursorException();
+        }
+        return cursor;
+    }
+
+    public String encode(String query) {
+        String normalizedQuery = UserService.normalizeSearchQuery(query);
+        String raw = match + SEPARATOR + id + SEPARATOR + normalizedQuery.length() + SEPARATOR + term.length()
+                + SEPARATOR + normalizedQuery + term + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
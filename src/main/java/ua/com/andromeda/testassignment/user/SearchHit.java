@@ -0,0 +1,8 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// term is the prefix that matched, the query itself or the closest known name when nothing started with the query;
+// key is the matched value as the database orders it, only needed to continue after this hit
+public record SearchHit(User user, SearchMatch match, String term, @JsonIgnore String key) {
+}
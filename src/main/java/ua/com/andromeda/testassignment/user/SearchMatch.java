@@ -0,0 +1,6 @@
+package ua.com.andromeda.testassignment.user;
+
+// in ranking order
+public enum SearchMatch {
+    LAST_NAME, FIRST_NAME, EMAIL
+}
@@ -1,5 +1,6 @@
 package ua.com.andromeda.testassignment.user;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -45,4 +46,13 @@ public class User {
 
     @PhoneNumber
     private String phoneNumber;
+
+    @Column(name = "phone_number_e164")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String phoneNumberE164;
+
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 }
@@ -1,45 +1,167 @@
 package ua.com.andromeda.testassignment.user;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ua.com.andromeda.testassignment.config.CacheConfig;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.BatchGetResult;
+import ua.com.andromeda.testassignment.dto.BulkImportResult;
+import ua.com.andromeda.testassignment.dto.CompactPage;
+import ua.com.andromeda.testassignment.dto.CursorPage;
 import ua.com.andromeda.testassignment.dto.Dto;
+import ua.com.andromeda.testassignment.dto.UserStats;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserStatsService userStatsService;
+    private final UserResponseCache userResponseCache;
+    private final UserProperties userProperties;
 
+    // a null response means the response has already been written
     @GetMapping("/{userId}")
-    public ResponseEntity<Dto<User>> findById(@PathVariable String userId) {
+    public ResponseEntity<Dto<User>> findById(@PathVariable String userId, WebRequest request,
+                                              HttpServletRequest servletRequest, HttpServletResponse response)
+            throws IOException {
+        // revalidation only reads the version, the user is loaded when it has changed
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(UserETags.of(userService.findVersionById(userId)))) {
+            return null;
+        }
+        UUID id = UserService.parseId(userId);
+        if (userResponseCache.write(CacheConfig.USER_RESPONSES_CACHE, id, servletRequest, response)) {
+            return null;
+        }
         User foundedUser = userService.findById(userId);
         Dto<User> body = new Dto<>(foundedUser);
+        String eTag = UserETags.of(foundedUser.getVersion());
+        if (userResponseCache.put(CacheConfig.USER_RESPONSES_CACHE, id, eTag, body, servletRequest, response)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(body);
+    }
+
+    @PostMapping("/batch-get")
+    public ResponseEntity<Dto<BatchGetResult>> findAllById(@RequestBody List<String> ids) {
+        BatchGetResult result = userService.findAllById(ids);
+        Dto<BatchGetResult> body = new Dto<>(result);
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Dto<UserStats>> getStats(
+            @RequestParam(required = false, defaultValue = "year") String groupBy) {
+        UserStats stats = userStatsService.getStats(UserStatsGrouping.of(groupBy));
+        Dto<UserStats> body = new Dto<>(stats);
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Dto<CursorPage<SearchHit>>> search(
+            @RequestParam String q,
+            @RequestParam(required = false, defaultValue = "10") int size,
+            @RequestParam(required = false, defaultValue = "") String cursor) {
+        UserService.checkPageSize(size, userProperties.pages().maxSize());
+        SearchCursor after = cursor.isEmpty() ? null : SearchCursor.decode(cursor, q);
+        Slice<SearchHit> hits = userService.search(q, after, size);
+        List<SearchHit> content = hits.getContent();
+        String next = hits.hasNext()
+                ? SearchCursor.after(content.get(content.size() - 1)).encode(q)
+                : null;
+        Dto<CursorPage<SearchHit>> body = new Dto<>(new CursorPage<>(content, next));
         return ResponseEntity.ok(body);
     }
 
     @GetMapping("/search/birthDate/between")
-    public ResponseEntity<Dto<Page<User>>> findAllByBirthDateBetween(
+    public ResponseEntity<Dto<CompactPage<UserView>>> findAllByBirthDateBetween(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(required = false, defaultValue = "10") int size,
-            @RequestParam(required = false, defaultValue = "0") int page) {
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false, defaultValue = "") String fields,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserService.checkPage(page, size, userProperties.pages().maxSize());
+        Set<UserField> parsedFields = UserField.parse(fields);
+        String key = "page:" + from + ":" + to + ":" + page + ":" + size + ":" + parsedFields;
+        if (userResponseCache.write(CacheConfig.USER_PAGE_RESPONSES_CACHE, key, request, response)) {
+            return null;
+        }
         Pageable pageable = PageRequest.of(page, size);
-        Page<User> foundedUsers = userService.findAllByBirthDateBetween(from, to, pageable);
-        Dto<Page<User>> body = new Dto<>(foundedUsers);
+        Page<UserView> foundedUsers = userService.findAllByBirthDateBetween(from, to, parsedFields, pageable);
+        Dto<CompactPage<UserView>> body = new Dto<>(CompactPage.of(foundedUsers));
+        if (userResponseCache.put(CacheConfig.USER_PAGE_RESPONSES_CACHE, key, null, body, request, response)) {
+            return null;
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping(value = "/search/birthDate/between", params = "cursor")
+    public ResponseEntity<Dto<CursorPage<UserView>>> findAllByBirthDateBetweenAfter(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false, defaultValue = "10") int size,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "") String fields,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserService.checkPageSize(size, userProperties.pages().maxSize());
+        Set<UserField> parsedFields = UserField.parse(fields);
+        String key = "cursor:" + from + ":" + to + ":" + cursor + ":" + size + ":" + parsedFields;
+        if (userResponseCache.write(CacheConfig.USER_PAGE_RESPONSES_CACHE, key, request, response)) {
+            return null;
+        }
+        BirthDateCursor after = cursor.isEmpty() ? null : BirthDateCursor.decode(cursor);
+        Slice<UserView> foundedUsers = userService.findAllByBirthDateBetween(from, to, parsedFields, after, size);
+        Dto<CursorPage<UserView>> body = new Dto<>(toCursorPage(foundedUsers));
+        if (userResponseCache.put(CacheConfig.USER_PAGE_RESPONSES_CACHE, key, null, body, request, response)) {
+            return null;
+        }
         return ResponseEntity.ok(body);
     }
 
+    private CursorPage<UserView> toCursorPage(Slice<UserView> slice) {
+        List<UserView> content = slice.getContent();
+        String next = slice.hasNext()
+                ? BirthDateCursor.after(content.get(content.size() - 1)).encode()
+                : null;
+        return new CursorPage<>(content, next);
+    }
+
+    @GetMapping("/export")
+    public void export(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                       @RequestParam(required = false, defaultValue = "ndjson") String format,
+                       HttpServletResponse response) throws IOException {
+        UserExportFormat exportFormat = UserExportFormat.of(format);
+        response.setContentType(exportFormat.getMediaType());
+        userService.exportByBirthDateBetween(from, to, exportFormat, response.getOutputStream());
+    }
+
     @PostMapping
     public ResponseEntity<Dto<User>> save(@RequestBody @Valid User user) {
         Dto<User> body = saveUser(user);
@@ -48,23 +170,33 @@ public class UserController {
         return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Dto<BulkImportResult>> importUsers(InputStream users) {
+        BulkImportResult result = userImportService.importUsers(users);
+        Dto<BulkImportResult> body = new Dto<>(result);
+        return ResponseEntity.ok(body);
+    }
+
     private Dto<User> saveUser(User user) {
         User savedUser = userService.save(user);
         return new Dto<>(savedUser);
     }
 
     @PutMapping
-    public ResponseEntity<Dto<User>> update(@RequestBody @Valid User user) {
-        Dto<User> body = saveUser(user);
-        return ResponseEntity.ok(body);
+    public ResponseEntity<Dto<User>> update(@RequestBody @Valid User user,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User savedUser = userService.update(user, UserETags.parseIfMatch(ifMatch));
+        Dto<User> body = new Dto<>(savedUser);
+        return ResponseEntity.ok().eTag(UserETags.of(savedUser.getVersion())).body(body);
     }
 
     @PatchMapping("/{userId}")
     public ResponseEntity<Dto<User>> partialUpdate(@PathVariable String userId,
-                                                   @RequestBody Map<String, Object> fields) {
-        User savedUser = userService.partialUpdate(userId, fields);
+                                                   @RequestBody Map<String, Object> fields,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User savedUser = userService.partialUpdate(userId, fields, UserETags.parseIfMatch(ifMatch));
         Dto<User> body = new Dto<>(savedUser);
-        return ResponseEntity.ok(body);
+        return ResponseEntity.ok().eTag(UserETags.of(savedUser.getVersion())).body(body);
     }
 
     @DeleteMapping("{userId}")
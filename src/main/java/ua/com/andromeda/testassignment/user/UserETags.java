@@ -0,0 +1,33 @@
+package ua.com.andromeda.testassignment.user;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// strong ETags are the quoted user version
+final class UserETags {
+    private UserETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // null when the header is missing or '*'; weak and malformed tags never match, since If-Match compares strongly
+    static Set<Long> parseIfMatch(String header) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String tag : header.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.length() > 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(trimmed.substring(1, trimmed.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // cannot match any version
+                }
+            }
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,12 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// offset orders the events of all users and is what a consumer resumes after; payload is the user as JSON after the
+// change, null for DELETED
+public record UserEvent(long offset, UUID userId, UserEventType type, @JsonRawValue String payload,
+                        Instant occurredAt) {
+}
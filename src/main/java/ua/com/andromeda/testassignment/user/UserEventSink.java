@@ -0,0 +1,10 @@
+package ua.com.andromeda.testassignment.user;
+
+import java.util.List;
+
+// Receives the events UserOutboxRelay delivers, in offset order. A sink that throws gets the batch again on the next
+// relay, so delivery is at least once and consumers skip offsets they have already seen.
+public interface UserEventSink {
+
+    void publish(List<UserEvent> events);
+}
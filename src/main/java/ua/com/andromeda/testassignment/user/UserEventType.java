@@ -0,0 +1,7 @@
+package ua.com.andromeda.testassignment.user;
+
+public enum UserEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,47 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import ua.com.andromeda.testassignment.exception.UnsupportedExportFormatException;
+
+@Getter
+@RequiredArgsConstructor
+public enum UserExportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE) {
+        @Override
+        ObjectWriter writer(ObjectMapper objectMapper) {
+            return objectMapper.writerFor(User.class).withRootValueSeparator("\n");
+        }
+    },
+    CSV("text/csv") {
+        @Override
+        ObjectWriter writer(ObjectMapper objectMapper) {
+            CsvMapper csvMapper = CsvMapper.builder()
+                    .addModule(new JavaTimeModule())
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                    .build();
+            return csvMapper.writerFor(User.class).with(csvMapper.schemaFor(User.class).withHeader());
+        }
+    };
+
+    private final String mediaType;
+
+    public static UserExportFormat of(String format) {
+        for (UserExportFormat value : values()) {
+            if (value.name().equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new UnsupportedExportFormatException(format);
+    }
+
+    abstract ObjectWriter writer(ObjectMapper objectMapper);
+}
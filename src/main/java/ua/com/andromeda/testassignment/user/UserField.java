@@ -0,0 +1,52 @@
+package ua.com.andromeda.testassignment.user;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ua.com.andromeda.testassignment.exception.UnsupportedFieldException;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+@Getter
+@RequiredArgsConstructor
+public enum UserField {
+    ID("id", "id", UUID.class),
+    EMAIL("email", "email", String.class),
+    FIRST_NAME("firstName", "first_name", String.class),
+    LAST_NAME("lastName", "last_name", String.class),
+    BIRTH_DATE("birthDate", "birth_date", LocalDate.class),
+    ADDRESS("address", "address", String.class),
+    PHONE_NUMBER("phoneNumber", "phone_number", String.class),
+    PHONE_NUMBER_E164("phoneNumberE164", "phone_number_e164", String.class),
+    VERSION("version", "version", Long.class);
+
+    // the id identifies the user, and lists are ordered and continued by birth date and id
+    private static final Set<UserField> ALWAYS_SELECTED = EnumSet.of(ID, BIRTH_DATE);
+
+    private final String property;
+    private final String column;
+    private final Class<?> type;
+
+    // comma separated property names as in the JSON of a user; every field when blank
+    public static Set<UserField> parse(String fields) {
+        if (fields.isBlank()) {
+            return EnumSet.allOf(UserField.class);
+        }
+        Set<UserField> result = EnumSet.copyOf(ALWAYS_SELECTED);
+        for (String property : fields.split(",")) {
+            result.add(ofProperty(property.trim()));
+        }
+        return result;
+    }
+
+    static UserField ofProperty(String property) {
+        for (UserField value : values()) {
+            if (value.property.equals(property)) {
+                return value;
+            }
+        }
+        throw new UnsupportedFieldException(property);
+    }
+}
@@ -0,0 +1,123 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.com.andromeda.testassignment.config.CacheConfig;
+import ua.com.andromeda.testassignment.config.ReadYourWrites;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.BulkImportResult;
+import ua.com.andromeda.testassignment.dto.BulkImportResult.RecordResult;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+    private final UserProperties userProperties;
+    private final ReadYourWrites readYourWrites;
+
+    // accepts a JSON array as well as newline-delimited JSON objects
+    @SneakyThrows
+    @CacheEvict(cacheNames = CacheConfig.USER_PAGE_RESPONSES_CACHE, allEntries = true)
+    public BulkImportResult importUsers(InputStream users) {
+        int batchSize = userProperties.bulkImport().batchSize();
+        List<RecordResult> results = new ArrayList<>();
+        List<PendingUser> batch = new ArrayList<>(batchSize);
+        try (MappingIterator<User> iterator = objectMapper.readerFor(User.class).readValues(users)) {
+            int index = 0;
+            while (true) {
+                User user;
+                try {
+                    if (!iterator.hasNextValue()) break;
+                    user = iterator.nextValue();
+                } catch (JsonMappingException ex) {
+                    // the iterator skips the rest of the malformed record
+                    results.add(RecordResult.failed(index++, "Malformed user"));
+                    continue;
+                } catch (JsonProcessingException ex) {
+                    // the rest of the stream cannot be parsed
+                    results.add(RecordResult.failed(index, "Malformed JSON"));
+                    break;
+                }
+
+                String error = validate(user);
+                if (error != null) {
+                    results.add(RecordResult.failed(index++, error));
+                    continue;
+                }
+                batch.add(new PendingUser(index++, user));
+                if (batch.size() == batchSize) {
+                    saveBatch(batch, results);
+                }
+            }
+        }
+        saveBatch(batch, results);
+
+        results.sort(Comparator.comparingInt(RecordResult::index));
+        int imported = (int) results.stream().filter(result -> result.error() == null).count();
+        return new BulkImportResult(imported, results.size() - imported, results);
+    }
+
+    private String validate(User user) {
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (violations.isEmpty()) return null;
+        return violations.iterator().next().getMessage();
+    }
+
+    private void saveBatch(List<PendingUser> batch, List<RecordResult> results) {
+        if (batch.isEmpty()) return;
+        try {
+            persistInTransaction(batch);
+            batch.forEach(pending -> results.add(RecordResult.imported(pending.index(), pending.user().getId())));
+        } catch (RuntimeException batchEx) {
+            // retry one by one so only the offending records are reported as failed
+            for (PendingUser pending : batch) {
+                try {
+                    persistInTransaction(List.of(pending));
+                    results.add(RecordResult.imported(pending.index(), pending.user().getId()));
+                } catch (RuntimeException ex) {
+                    results.add(RecordResult.failed(pending.index(), "Failed to save user"));
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private void persistInTransaction(List<PendingUser> pendingUsers) {
+        // ids assigned by a rolled back attempt would make Hibernate treat the users as detached
+        pendingUsers.forEach(pending -> pending.user().setId(null));
+        transactionTemplate.executeWithoutResult(status -> {
+            for (PendingUser pending : pendingUsers) {
+                User user = pending.user();
+                user.setPhoneNumberE164(phoneNumberNormalizer.toE164OrNull(user.getPhoneNumber()));
+                entityManager.persist(user);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        readYourWrites.written(pendingUsers.stream().map(pending -> pending.user().getId()).toList());
+    }
+
+    private record PendingUser(int index, User user) {
+    }
+}
@@ -0,0 +1,55 @@
+package ua.com.andromeda.testassignment.user;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.user.UserOutboxRepository.OutboxEntry;
+
+import java.util.List;
+
+// Delivers the changes the user_outbox triggers record to every UserEventSink. Outbox ids are taken when a change
+// is written, not when it commits, so the relay numbers events itself: one relay at a time, across instances,
+// gives committed changes consecutive offsets in a transaction of its own, and delivers them in offset order in the
+// next one. A batch a sink fails keeps its offsets when it is delivered again.
+@Service
+@Timed("user.outbox.relay")
+@RequiredArgsConstructor
+public class UserOutboxRelay {
+    private final UserOutboxRepository userOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<UserEventSink> sinks;
+    private final UserProperties userProperties;
+
+    @Scheduled(fixedDelayString = "${user.outbox.relay-interval}")
+    public void relay() {
+        int batchSize = userProperties.outbox().batchSize();
+        Integer delivered;
+        do {
+            transactionTemplate.executeWithoutResult(status -> numberBatch(batchSize));
+            delivered = transactionTemplate.execute(status -> relayBatch(batchSize));
+        } while (delivered != null && delivered == batchSize);
+    }
+
+    private void numberBatch(int batchSize) {
+        Long lastOffset = userOutboxRepository.lockLastOffset();
+        if (lastOffset == null) return;
+        userOutboxRepository.number(lastOffset, batchSize);
+    }
+
+    private int relayBatch(int batchSize) {
+        if (userOutboxRepository.lockLastOffset() == null) return 0;
+        List<OutboxEntry> entries = userOutboxRepository.findOldest(batchSize);
+        if (entries.isEmpty()) return 0;
+
+        List<UserEvent> events = entries.stream().map(OutboxEntry::toEvent).toList();
+        // a failing sink rolls the batch back into the outbox, with the offsets it was given
+        for (UserEventSink sink : sinks) {
+            sink.publish(events);
+        }
+        userOutboxRepository.delivered(entries);
+        return entries.size();
+    }
+}
@@ -0,0 +1,59 @@
+package ua.com.andromeda.testassignment.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class UserOutboxRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // null while another relay holds the lock until the end of its transaction
+    public Long lockLastOffset() {
+        String sql = "SELECT last_offset FROM user_outbox_relay WHERE id = 1 FOR UPDATE SKIP LOCKED";
+        List<Long> offsets = jdbcTemplate.queryForList(sql, Long.class);
+        return offsets.isEmpty() ? null : offsets.get(0);
+    }
+
+    // the oldest changes without an offset get the ones after lastOffset, in outbox id order; returns how many
+    public int number(long lastOffset, int limit) {
+        String sql = "WITH numbered AS (SELECT id, ? + row_number() OVER (ORDER BY id) AS event_offset " +
+                "FROM user_outbox WHERE event_offset IS NULL ORDER BY id LIMIT ?) " +
+                "UPDATE user_outbox SET event_offset = numbered.event_offset FROM numbered " +
+                "WHERE user_outbox.id = numbered.id";
+        int numbered = jdbcTemplate.update(sql, lastOffset, limit);
+        jdbcTemplate.update("UPDATE user_outbox_relay SET last_offset = ? WHERE id = 1", lastOffset + numbered);
+        return numbered;
+    }
+
+    public List<OutboxEntry> findOldest(int limit) {
+        String sql = "SELECT id, event_offset, user_id, type, payload::text AS payload, occurred_at FROM user_outbox " +
+                "WHERE event_offset IS NOT NULL ORDER BY event_offset LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new OutboxEntry(
+                rs.getLong("id"),
+                rs.getLong("event_offset"),
+                rs.getObject("user_id", UUID.class),
+                UserEventType.valueOf(rs.getString("type")),
+                rs.getString("payload"),
+                rs.getTimestamp("occurred_at")
+        ), limit);
+    }
+
+    public void delivered(List<OutboxEntry> entries) {
+        Long[] ids = entries.stream().map(OutboxEntry::id).toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM user_outbox WHERE id = ANY(?)", (Object) ids);
+    }
+
+    public record OutboxEntry(long id, long offset, UUID userId, UserEventType type, String payload,
+                              Timestamp occurredAt) {
+
+        UserEvent toEvent() {
+            return new UserEvent(offset, userId, type, payload, occurredAt.toInstant());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ua.com.andromeda.testassignment.user;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ua.com.andromeda.testassignment.config.UserProperties;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Adds the decade partitions of users before birth dates reach them. A row past the last partition goes to
+// users_default, which every birth date range beyond the partitions has to read, and which holds up the creation
+// of a partition for its decade while its rows are moved out
+@Slf4j
+@Service
+@Timed("user.partitions")
+@RequiredArgsConstructor
+public class UserPartitionMaintenance {
+    private final UserPartitionRepository userPartitionRepository;
+    private final UserProperties userProperties;
+
+    @Scheduled(fixedDelayString = "${user.partitions.maintenance-interval}")
+    public void createPartitions() {
+        LocalDate until = LocalDate.now().plus(userProperties.partitions().ahead());
+        List<String> created = userPartitionRepository.createPartitions(until);
+        if (!created.isEmpty()) {
+            log.info("Created users partitions {}", created);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ua.com.andromeda.testassignment.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class UserPartitionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // returns the partitions that were missing
+    public List<String> createPartitions(LocalDate until) {
+        return jdbcTemplate.queryForList("SELECT create_users_partitions(?)", String.class, until);
+    }
+}
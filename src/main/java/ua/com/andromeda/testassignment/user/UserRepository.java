@@ -1,16 +1,55 @@
 package ua.com.andromeda.testassignment.user;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ua.com.andromeda.testassignment.config.CacheConfig;
 
 import java.time.LocalDate;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends CrudRepository<User, UUID> {
-    @Query("FROM User u WHERE u.birthDate BETWEEN :from AND :to")
-    Page<User> findAllByBirthDateBetweenAnd(LocalDate from, LocalDate to, Pageable pageable);
+public interface UserRepository extends CrudRepository<User, UUID>, UserRepositoryCustom {
+    // an empty result is cached too, so lookups of missing ids do not reach the database either;
+    // the cached instance is shared, so callers that modify the user must use findById instead.
+    // Read-only, so a miss may be read from a replica, see ReadYourWrites
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, unless = "@readYourWrites.recentlyWritten(#p0)")
+    @Transactional(readOnly = true)
+    Optional<User> findCachedById(UUID id);
+
+    // lets conditional reads be answered without loading the user
+    @Query("SELECT u.version FROM User u WHERE u.id = :id")
+    @Transactional(readOnly = true)
+    Optional<Long> findVersionById(UUID id);
+
+    // any change can move users in or out of a cached page
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {CacheConfig.USERS_CACHE, CacheConfig.USER_RESPONSES_CACHE}, key = "#result.id"),
+            @CacheEvict(cacheNames = CacheConfig.USER_PAGE_RESPONSES_CACHE, allEntries = true)
+    })
+    <S extends User> S save(S user);
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict({CacheConfig.USERS_CACHE, CacheConfig.USER_RESPONSES_CACHE}),
+            @CacheEvict(cacheNames = CacheConfig.USER_PAGE_RESPONSES_CACHE, allEntries = true)
+    })
+    void deleteById(UUID id);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("FROM User u WHERE u.birthDate BETWEEN :from AND :to ORDER BY u.birthDate, u.id")
+    Stream<User> streamAllByBirthDateBetween(LocalDate from, LocalDate to);
 }
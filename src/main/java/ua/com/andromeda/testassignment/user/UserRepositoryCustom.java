@@ -0,0 +1,42 @@
+package ua.com.andromeda.testassignment.user;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.annotation.Transactional;
+import ua.com.andromeda.testassignment.config.CacheConfig;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+public interface UserRepositoryCustom {
+    // versions is null when the stored version does not matter
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {CacheConfig.USERS_CACHE, CacheConfig.USER_RESPONSES_CACHE}, key = "#p0"),
+            @CacheEvict(cacheNames = CacheConfig.USER_PAGE_RESPONSES_CACHE, allEntries = true)
+    })
+    Optional<User> updateFields(UUID id, Map<String, Object> values, Set<Long> versions);
+
+    // shares the cache with findCachedById; ids that do not exist are left out of the result
+    @Transactional(readOnly = true)
+    Map<UUID, User> findAllCachedById(List<UUID> ids);
+
+    // users born between from and to with only the given fields, ordered by birth date and id
+    Page<UserView> findViewsByBirthDateBetween(LocalDate from, LocalDate to, Set<UserField> fields, Pageable pageable);
+
+    // the same after the cursor, with one row more read to tell whether there is a next slice
+    Slice<UserView> findViewsByBirthDateBetweenAfter(LocalDate from, LocalDate to, BirthDateCursor after,
+                                                     Set<UserField> fields, int size);
+
+    // users whose field of after.match() starts with after.term(), ordered by that field and id
+    List<SearchHit> searchByPrefix(SearchCursor after, int limit);
+
+    // the known first or last name most similar to the lower case query, by trigram similarity
+    Optional<String> findClosestSearchTerm(String query);
+}
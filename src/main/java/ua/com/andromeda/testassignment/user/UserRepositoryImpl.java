@@ -0,0 +1,206 @@
+package ua.com.andromeda.testassignment.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ua.com.andromeda.testassignment.config.CacheConfig;
+import ua.com.andromeda.testassignment.config.ReadYourWrites;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    static final Map<String, String> UPDATABLE_COLUMNS = Map.of(
+            "email", "email",
+            "firstName", "first_name",
+            "lastName", "last_name",
+            "birthDate", "birth_date",
+            "address", "address",
+            "phoneNumber", "phone_number",
+            "phoneNumberE164", "phone_number_e164"
+    );
+    static final String COLUMNS =
+            "id, email, first_name, last_name, birth_date, address, phone_number, phone_number_e164, version";
+    private static final RowMapper<User> USER_ROW_MAPPER = new BeanPropertyRowMapper<>(User.class);
+    private static final Map<SearchMatch, String> PREFIX_SEARCH_COLUMNS = Map.of(
+            SearchMatch.LAST_NAME, "last_name",
+            SearchMatch.FIRST_NAME, "first_name",
+            SearchMatch.EMAIL, "email"
+    );
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    private final ReadYourWrites readYourWrites;
+
+    // only the supplied columns are written, and the updated row comes back in the same round trip;
+    // the version check is part of the same statement, so concurrent updaters cannot slip in between
+    @Override
+    public Optional<User> updateFields(UUID id, Map<String, Object> values, Set<Long> versions) {
+        if (versions != null && versions.isEmpty()) {
+            return Optional.empty();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("id", id);
+        String condition = "id = :id";
+        if (versions != null) {
+            condition += " AND version IN (:versions)";
+            params.addValue("versions", versions);
+        }
+        if (values.isEmpty()) {
+            String sql = "SELECT " + COLUMNS + " FROM users WHERE " + condition;
+            return jdbcTemplate.query(sql, params, USER_ROW_MAPPER).stream().findFirst();
+        }
+        StringJoiner assignments = new StringJoiner(", ");
+        values.forEach((property, value) -> {
+            String column = UPDATABLE_COLUMNS.get(property);
+            if (column == null) {
+                throw new IllegalArgumentException("Property '" + property + "' cannot be updated");
+            }
+            assignments.add(column + " = :" + property);
+            params.addValue(property, value);
+        });
+        assignments.add("version = version + 1");
+        String sql = "UPDATE users SET " + assignments + " WHERE " + condition + " RETURNING " + COLUMNS;
+        return jdbcTemplate.query(sql, params, USER_ROW_MAPPER).stream().findFirst();
+    }
+
+    // cached users and cached misses are taken as they are, the rest is read with one query and cached
+    // the same way findCachedById caches it, so missing ids are stored as null
+    @Override
+    public Map<UUID, User> findAllCachedById(List<UUID> ids) {
+        Cache cache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        Map<UUID, User> users = new HashMap<>();
+        List<UUID> uncachedIds = new ArrayList<>();
+        for (UUID id : ids) {
+            Cache.ValueWrapper cached = cache.get(id);
+            if (cached == null) {
+                uncachedIds.add(id);
+            } else if (cached.get() != null) {
+                users.put(id, (User) cached.get());
+            }
+        }
+        if (uncachedIds.isEmpty()) {
+            return users;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", uncachedIds.toArray(UUID[]::new));
+        String sql = "SELECT " + COLUMNS + " FROM users WHERE id = ANY(:ids)";
+        jdbcTemplate.query(sql, params, USER_ROW_MAPPER).forEach(user -> users.put(user.getId(), user));
+        uncachedIds.stream()
+                .filter(id -> !readYourWrites.recentlyWritten(id))
+                .forEach(id -> cache.put(id, users.get(id)));
+        return users;
+    }
+
+    // only the requested columns are read, into plain maps rather than entities of a persistence context;
+    // ordered like the keyset variant, so that pages are stable and follow users_birth_date_id_idx
+    @Override
+    public Page<UserView> findViewsByBirthDateBetween(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                      Pageable pageable) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("limit", pageable.getPageSize())
+                .addValue("offset", pageable.getOffset());
+        String sql = "SELECT " + columns(fields) + " FROM users WHERE birth_date BETWEEN :from AND :to " +
+                "ORDER BY birth_date, id LIMIT :limit OFFSET :offset";
+        List<UserView> views = jdbcTemplate.query(sql, params, viewMapper(fields));
+        // the count is skipped when the page itself tells the total, e.g. a first page that is not full
+        return PageableExecutionUtils.getPage(views, pageable, () -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM users WHERE birth_date BETWEEN :from AND :to", params, Long.class));
+    }
+
+    @Override
+    public Slice<UserView> findViewsByBirthDateBetweenAfter(LocalDate from, LocalDate to, BirthDateCursor after,
+                                                            Set<UserField> fields, int size) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("afterBirthDate", after.birthDate())
+                .addValue("afterId", after.id())
+                .addValue("limit", size + 1);
+        String sql = "SELECT " + columns(fields) + " FROM users WHERE birth_date BETWEEN :from AND :to " +
+                "AND (birth_date, id) > (:afterBirthDate, :afterId) ORDER BY birth_date, id LIMIT :limit";
+        // one extra row tells whether there is a next slice
+        List<UserView> views = jdbcTemplate.query(sql, params, viewMapper(fields));
+        boolean hasNext = views.size() > size;
+        return new SliceImpl<>(hasNext ? views.subList(0, size) : views, PageRequest.ofSize(size), hasNext);
+    }
+
+    private static String columns(Set<UserField> fields) {
+        return fields.stream().map(UserField::getColumn).collect(Collectors.joining(", "));
+    }
+
+    private static RowMapper<UserView> viewMapper(Set<UserField> fields) {
+        return (rs, rowNum) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (UserField field : fields) {
+                values.put(field.getProperty(), rs.getObject(field.getColumn(), field.getType()));
+            }
+            return new UserView(values);
+        };
+    }
+
+    // a range over the index instead of LIKE, which a generic plan of the prepared statement could not use;
+    // users found by an earlier kind of match are skipped, so each user is found once
+    @Override
+    public List<SearchHit> searchByPrefix(SearchCursor after, int limit) {
+        String key = searchKey(after.match());
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("prefix", after.term())
+                .addValue("upperBound", prefixUpperBound(after.term()))
+                .addValue("afterKey", after.key())
+                .addValue("afterId", after.id())
+                .addValue("limit", limit);
+        // the row comparison is where the index scan starts, so a cursor never points before the prefix
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + ", " + key + " AS search_key FROM users " +
+                "WHERE (" + key + ", id) > (:afterKey, :afterId) " +
+                "AND " + key + " >= :prefix AND " + key + " < :upperBound");
+        for (SearchMatch earlierMatch : Arrays.asList(SearchMatch.values()).subList(0, after.match().ordinal())) {
+            sql.append(" AND NOT starts_with(lower(").append(PREFIX_SEARCH_COLUMNS.get(earlierMatch))
+                    .append("), :prefix)");
+        }
+        sql.append(" ORDER BY ").append(key).append(", id LIMIT :limit");
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) ->
+                new SearchHit(USER_ROW_MAPPER.mapRow(rs, rowNum), after.match(), after.term(),
+                        rs.getString("search_key")));
+    }
+
+    // the % filter drops names that are not similar at all, see V1_13
+    @Override
+    public Optional<String> findClosestSearchTerm(String query) {
+        String sql = "SELECT term FROM user_search_terms WHERE term % :query " +
+                "ORDER BY similarity(term, :query) DESC, term LIMIT 1";
+        return jdbcTemplate.queryForList(sql, Map.of("query", query), String.class).stream().findFirst();
+    }
+
+    // indexed by users_*_search_idx, see V1_12
+    private static String searchKey(SearchMatch match) {
+        return "lower(" + PREFIX_SEARCH_COLUMNS.get(match) + ") COLLATE \"C\"";
+    }
+
+    // every string that starts with the prefix sorts before it in code point order
+    private static String prefixUpperBound(String prefix) {
+        int last = prefix.codePointBefore(prefix.length());
+        return prefix.substring(0, prefix.length() - Character.charCount(last)) + Character.toString(last + 1);
+    }
+}
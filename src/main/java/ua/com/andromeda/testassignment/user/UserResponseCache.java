@@ -0,0 +1,197 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import ua.com.andromeda.testassignment.config.CacheConfig;
+import ua.com.andromeda.testassignment.config.ReadYourWrites;
+import ua.com.andromeda.testassignment.config.UserProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// JSON response bodies as they were written, so hot reads skip Jackson. The caches are registered with the cache
+// manager, so the @CacheEvict annotations on the repositories drop entries together with the cached users
+@Component
+public class UserResponseCache implements CacheManagerCustomizer<CaffeineCacheManager> {
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    private static final int WRITE_CHUNK_SIZE = 8192;
+
+    private final ObjectMapper objectMapper;
+    private final UserProperties.ResponseCache properties;
+    private final ReadYourWrites readYourWrites;
+    private final Map<String, Cache<Object, Object>> caches;
+
+    public UserResponseCache(ObjectMapper objectMapper, UserProperties userProperties,
+                             ReadYourWrites readYourWrites) {
+        this.objectMapper = objectMapper;
+        this.properties = userProperties.responseCache();
+        this.readYourWrites = readYourWrites;
+        this.caches = Map.of(
+                CacheConfig.USER_RESPONSES_CACHE, newCache(),
+                CacheConfig.USER_PAGE_RESPONSES_CACHE, newCache());
+    }
+
+    // bounded by the bytes held rather than the number of entries
+    private Cache<Object, Object> newCache() {
+        return Caffeine.newBuilder()
+                .maximumWeight(properties.maxSize().toBytes())
+                .weigher((Object key, Object entry) -> ((Entry) entry).body().capacity())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void customize(CaffeineCacheManager cacheManager) {
+        caches.forEach(cacheManager::registerCustomCache);
+    }
+
+    // false on a miss and for requests that negotiate another format, which the controller then answers itself
+    public boolean write(String cacheName, Object key, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!acceptsJson(request)) {
+            return false;
+        }
+        Entry entry = (Entry) caches.get(cacheName).getIfPresent(key);
+        if (entry == null) {
+            return false;
+        }
+        write(entry, request, response);
+        return true;
+    }
+
+    // serializes the body, caches it and writes it; false, with nothing cached, when the request negotiates
+    // another format. A user this instance has just written may come from a lagging replica and is not cached
+    public boolean put(String cacheName, Object key, String eTag, Object body, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        if (!acceptsJson(request)) {
+            return false;
+        }
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        boolean gzipped = json.length >= properties.compressionMinSize().toBytes();
+        byte[] stored = gzipped ? gzip(json) : json;
+        ByteBuffer buffer = properties.offHeap()
+                ? ByteBuffer.allocateDirect(stored.length).put(stored).flip()
+                : ByteBuffer.wrap(stored);
+        Entry entry = new Entry(eTag, buffer, gzipped);
+        if (!(key instanceof UUID id && readYourWrites.recentlyWritten(id))) {
+            caches.get(cacheName).put(key, entry);
+        }
+        write(entry, request, response);
+        return true;
+    }
+
+    private void write(Entry entry, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (entry.eTag() != null) {
+            response.setHeader(HttpHeaders.ETAG, entry.eTag());
+        }
+        ByteBuffer body = entry.body().duplicate();
+        if (entry.gzipped() && !acceptsGzip(request)) {
+            // stored compressed once, so clients without gzip support cost an inflate per request
+            byte[] json = gunzip(body);
+            response.setContentLength(json.length);
+            response.getOutputStream().write(json);
+            return;
+        }
+        if (entry.gzipped()) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.remaining());
+        ServletOutputStream out = response.getOutputStream();
+        if (body.hasArray()) {
+            out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(WRITE_CHUNK_SIZE, body.remaining())];
+        while (body.hasRemaining()) {
+            int length = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    // the format the converters would pick: the most preferred accepted type that JSON, CBOR or Smile matches.
+    // A header that does not parse is left to the converters, which answer 406
+    private static boolean acceptsJson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return false;
+        }
+        mediaTypes.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0) {
+                break;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR) || mediaType.isCompatibleWith(SMILE)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(ByteBuffer body) throws IOException {
+        byte[] compressed = new byte[body.remaining()];
+        body.get(compressed);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // body is a direct buffer when the cache is off-heap
+    private record Entry(String eTag, ByteBuffer body, boolean gzipped) {
+    }
+}
@@ -1,60 +1,301 @@
 package ua.com.andromeda.testassignment.user;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ua.com.andromeda.testassignment.config.ReadYourWrites;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.BatchGetResult;
+import ua.com.andromeda.testassignment.exception.InvalidFieldException;
+import ua.com.andromeda.testassignment.exception.InvalidPageException;
 import ua.com.andromeda.testassignment.exception.InvalidRangeException;
+import ua.com.andromeda.testassignment.exception.InvalidSearchQueryException;
 import ua.com.andromeda.testassignment.exception.InvalidUUIDException;
+import ua.com.andromeda.testassignment.exception.PreconditionFailedException;
+import ua.com.andromeda.testassignment.exception.TooManyIdsException;
 import ua.com.andromeda.testassignment.exception.UserNotFoundException;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
+@Timed("user.service")
 @RequiredArgsConstructor
 public class UserService {
+    private static final LocalDate EARLIEST_BIRTH_DATE = LocalDate.of(1, 1, 1);
+    private static final InvalidUUIDException INVALID_UUID = new InvalidUUIDException();
+    // shorter queries have too few trigrams to be selective
+    static final int MIN_SEARCH_QUERY_LENGTH = 3;
+    private static final Set<String> PATCHABLE_PROPERTIES =
+            Set.of("email", "firstName", "lastName", "birthDate", "address", "phoneNumber");
+
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final UserProperties userProperties;
+    private final ReadYourWrites readYourWrites;
 
 
     public User findById(String id) {
-        try {
-            UUID uuid = UUID.fromString(id);
-            return userRepository.findById(uuid)
-                    .orElseThrow(() -> new UserNotFoundException(id));
-        } catch (IllegalArgumentException ex) {
-            throw new InvalidUUIDException();
+        return userRepository.findCachedById(parseId(id))
+                .orElseThrow(() -> new UserNotFoundException(id));
+    }
+
+    // every id is checked before anything is read; duplicates are looked up once
+    public BatchGetResult findAllById(List<String> ids) {
+        UserProperties.BatchGet batchGet = userProperties.batchGet();
+        if (ids.size() > batchGet.maxIds()) {
+            throw new TooManyIdsException(batchGet.maxIds());
+        }
+        Map<String, UUID> requestedIds = new LinkedHashMap<>();
+        for (String id : ids) {
+            requestedIds.computeIfAbsent(id, UserService::parseId);
         }
+        List<UUID> uuids = requestedIds.values().stream().distinct().toList();
+        Map<UUID, User> foundUsers = new HashMap<>();
+        for (int from = 0; from < uuids.size(); from += batchGet.chunkSize()) {
+            List<UUID> chunk = uuids.subList(from, Math.min(uuids.size(), from + batchGet.chunkSize()));
+            foundUsers.putAll(userRepository.findAllCachedById(chunk));
+        }
+
+        Map<UUID, User> users = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        requestedIds.forEach((id, uuid) -> {
+            User user = foundUsers.get(uuid);
+            if (user == null) {
+                missing.add(id);
+            } else {
+                users.put(uuid, user);
+            }
+        });
+        return new BatchGetResult(users, missing);
+    }
+
+    public long findVersionById(String id) {
+        return userRepository.findVersionById(parseId(id))
+                .orElseThrow(() -> new UserNotFoundException(id));
     }
 
     public User save(@Valid User userToSave) {
-        return userRepository.save(userToSave);
+        userToSave.setPhoneNumberE164(phoneNumberNormalizer.toE164OrNull(userToSave.getPhoneNumber()));
+        User savedUser = userRepository.save(userToSave);
+        readYourWrites.written(userToSave.getId());
+        return savedUser;
+    }
+
+    // versions is null for an unconditional update; merging loads the stored user in this transaction anyway
+    @Transactional
+    public User update(@Valid User userToUpdate, Set<Long> versions) {
+        Optional<User> storedUser = userToUpdate.getId() == null
+                ? Optional.empty()
+                : userRepository.findById(userToUpdate.getId());
+        if (versions != null && storedUser.map(User::getVersion).filter(versions::contains).isEmpty()) {
+            throw new PreconditionFailedException();
+        }
+        storedUser.ifPresent(user -> userToUpdate.setVersion(user.getVersion()));
+        return save(userToUpdate);
     }
 
     public void delete(String id) {
-        try {
-            userRepository.deleteById(UUID.fromString(id));
-        } catch (IllegalArgumentException ex) {
-            throw new InvalidUUIDException();
+        UUID uuid = parseId(id);
+        userRepository.deleteById(uuid);
+        readYourWrites.written(uuid);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<UserView> findAllByBirthDateBetween(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                    Pageable pageable) {
+        checkRange(from, to);
+        // the controller caches the page
+        return readYourWrites.readForCache(() -> userRepository.findViewsByBirthDateBetween(from, to, fields, pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<UserView> findAllByBirthDateBetween(LocalDate from, LocalDate to, Set<UserField> fields,
+                                                     BirthDateCursor after, int size) {
+        checkRange(from, to);
+        BirthDateCursor cursor = after == null ? BirthDateCursor.before(from) : after;
+        return readYourWrites.readForCache(
+                () -> userRepository.findViewsByBirthDateBetweenAfter(from, to, cursor, fields, size));
+    }
+
+    // prefix matches of last name, then first name, then email, each in index order. When nothing starts with the
+    // query, e.g. because of a typo, the closest known name is searched instead; the cursor keeps the searched term
+    @Transactional(readOnly = true)
+    public Slice<SearchHit> search(String query, SearchCursor after, int size) {
+        String normalizedQuery = normalizeSearchQuery(query);
+        if (normalizedQuery.length() < MIN_SEARCH_QUERY_LENGTH) {
+            throw new InvalidSearchQueryException(MIN_SEARCH_QUERY_LENGTH);
+        }
+        if (after != null) {
+            return searchByPrefix(after, size);
+        }
+        Slice<SearchHit> hits = searchByPrefix(SearchCursor.first(normalizedQuery, SearchMatch.LAST_NAME), size);
+        if (!hits.isEmpty()) {
+            return hits;
+        }
+        return userRepository.findClosestSearchTerm(normalizedQuery)
+                .filter(term -> !term.equals(normalizedQuery))
+                .map(term -> searchByPrefix(SearchCursor.first(term, SearchMatch.LAST_NAME), size))
+                .orElse(hits);
+    }
+
+    private Slice<SearchHit> searchByPrefix(SearchCursor after, int size) {
+        // one extra hit tells whether there is a next page
+        List<SearchHit> hits = new ArrayList<>();
+        for (SearchMatch match : SearchMatch.values()) {
+            if (match.compareTo(after.match()) < 0) {
+                continue;
+            }
+            SearchCursor cursor = match == after.match() ? after : SearchCursor.first(after.term(), match);
+            hits.addAll(userRepository.searchByPrefix(cursor, size + 1 - hits.size()));
+            if (hits.size() > size) {
+                break;
+            }
+        }
+        boolean hasNext = hits.size() > size;
+        return new SliceImpl<>(hasNext ? hits.subList(0, size) : hits, PageRequest.ofSize(size), hasNext);
+    }
+
+    // users are written one at a time and detached right away, so memory use does not grow with the table
+    @SneakyThrows
+    @Transactional(readOnly = true)
+    public void exportByBirthDateBetween(LocalDate from, LocalDate to, UserExportFormat format, OutputStream out) {
+        LocalDate lowerBound = from == null ? EARLIEST_BIRTH_DATE : from;
+        LocalDate upperBound = to == null ? LocalDate.now() : to;
+        checkRange(lowerBound, upperBound);
+        try (Stream<User> users = userRepository.streamAllByBirthDateBetween(lowerBound, upperBound);
+             SequenceWriter writer = format.writer(objectMapper).writeValues(out)) {
+            for (User user : (Iterable<User>) users::iterator) {
+                writer.write(user);
+                entityManager.detach(user);
+            }
+        }
+    }
+
+    static UUID parseId(String id) {
+        if (!isCanonicalUuid(id)) {
+            throw INVALID_UUID;
+        }
+        return UUID.fromString(id);
+    }
+
+    // only the 8-4-4-4-12 hex form, checked up front so malformed ids never reach UUID.fromString
+    private static boolean isCanonicalUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23
+                    ? c == '-'
+                    : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            if (!valid) {
+                return false;
+            }
         }
+        return true;
     }
 
-    public Page<User> findAllByBirthDateBetween(LocalDate from, LocalDate to, Pageable pageable) {
+    static String normalizeSearchQuery(String query) {
+        return query.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static void checkRange(LocalDate from, LocalDate to) {
         if (from == null || from.isAfter(to)) {
             throw new InvalidRangeException("'From' date must be less than 'to'");
         }
-        return userRepository.findAllByBirthDateBetweenAnd(from, to, pageable);
     }
 
-    @SneakyThrows
-    public User partialUpdate(String id, Map<String, Object> fields) {
-        User foundedUser = findById(id);
-        User updatedUser = objectMapper.updateValue(foundedUser, fields);
-        return save(updatedUser);
+    // checked by the controllers before anything is read: an empty page has no last element to continue after, and
+    // a negative size or page would reach LIMIT and OFFSET
+    static void checkPageSize(int size, int maxSize) {
+        if (size < 1 || size > maxSize) {
+            throw new InvalidPageException("Page size must be between 1 and " + maxSize);
+        }
+    }
+
+    static void checkPage(int page, int size, int maxSize) {
+        checkPageSize(size, maxSize);
+        if (page < 0) {
+            throw new InvalidPageException("Page number must not be negative");
+        }
+    }
+
+    // unknown and read-only fields are ignored, like when the body is merged into the entity by Jackson
+    @Transactional
+    public User partialUpdate(String id, Map<String, Object> fields, Set<Long> versions) {
+        UUID uuid = parseId(id);
+        Map<String, Object> values = toColumnValues(fields);
+        User updatedUser = userRepository.updateFields(uuid, values, versions)
+                .orElseThrow(() -> versions != null && userRepository.existsById(uuid)
+                        ? new PreconditionFailedException()
+                        : new UserNotFoundException(id));
+        // rolls the update back if the merged user is invalid as a whole
+        validate(updatedUser);
+        readYourWrites.written(uuid);
+        return updatedUser;
+    }
+
+    Map<String, Object> toColumnValues(Map<String, Object> fields) {
+        Map<String, Object> values = new HashMap<>();
+        fields.forEach((property, value) -> {
+            if (PATCHABLE_PROPERTIES.contains(property)) {
+                values.put(property, toPropertyValue(property, value));
+            }
+        });
+        if (values.containsKey("phoneNumber")) {
+            values.put("phoneNumberE164", phoneNumberNormalizer.toE164OrNull((String) values.get("phoneNumber")));
+        }
+        return values;
+    }
+
+    void validate(User user) {
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    private Object toPropertyValue(String property, Object value) {
+        Object propertyValue;
+        try {
+            propertyValue = objectMapper.convertValue(value, BeanUtils.findPropertyType(property, User.class));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidFieldException(property);
+        }
+        Set<ConstraintViolation<User>> violations = validator.validateValue(User.class, property, propertyValue);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return propertyValue;
     }
 }
@@ -0,0 +1,30 @@
+package ua.com.andromeda.testassignment.user;
+
+import ua.com.andromeda.testassignment.exception.UnsupportedStatsGroupingException;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+public enum UserStatsGrouping {
+    YEAR(DateTimeFormatter.ofPattern("uuuu")),
+    MONTH(DateTimeFormatter.ofPattern("uuuu-MM"));
+
+    private final DateTimeFormatter formatter;
+
+    UserStatsGrouping(DateTimeFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    public static UserStatsGrouping of(String groupBy) {
+        for (UserStatsGrouping value : values()) {
+            if (value.name().equalsIgnoreCase(groupBy)) {
+                return value;
+            }
+        }
+        throw new UnsupportedStatsGroupingException(groupBy);
+    }
+
+    String key(LocalDate birthDate) {
+        return formatter.format(birthDate);
+    }
+}
@@ -0,0 +1,28 @@
+package ua.com.andromeda.testassignment.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class UserStatsRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public void refresh() {
+        jdbcTemplate.execute("REFRESH MATERIALIZED VIEW CONCURRENTLY user_birth_date_stats");
+    }
+
+    public List<BirthDateCount> findAll() {
+        String sql = "SELECT birth_date, users, with_phone_number, with_address FROM user_birth_date_stats";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new BirthDateCount(
+                rs.getObject("birth_date", LocalDate.class),
+                rs.getLong("users"),
+                rs.getLong("with_phone_number"),
+                rs.getLong("with_address")
+        ));
+    }
+}
@@ -0,0 +1,101 @@
+package ua.com.andromeda.testassignment.user;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.UserStats;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Statistics are computed once per refresh of user_birth_date_stats and served from memory, so they are at most
+// user.stats.refresh-interval plus the duration of a refresh old
+@Service
+@Timed("user.stats")
+@RequiredArgsConstructor
+public class UserStatsService {
+    private final UserStatsRepository userStatsRepository;
+    private final UserProperties userProperties;
+
+    private final AtomicReference<Map<UserStatsGrouping, UserStats>> stats = new AtomicReference<>();
+
+    @Scheduled(fixedDelayString = "${user.stats.refresh-interval}")
+    public void refresh() {
+        Instant refreshedAt = Instant.now();
+        userStatsRepository.refresh();
+        stats.set(compute(refreshedAt, userStatsRepository.findAll()));
+    }
+
+    public UserStats getStats(UserStatsGrouping groupBy) {
+        Map<UserStatsGrouping, UserStats> current = stats.get();
+        if (current == null) {
+            // until the first refresh completes, the view still holds the counts of an earlier one, taken at a time
+            // the view does not record; a refresh that finished meanwhile is kept
+            current = compute(null, userStatsRepository.findAll());
+            if (!stats.compareAndSet(null, current)) {
+                current = stats.get();
+            }
+        }
+        return current.get(groupBy);
+    }
+
+    private Map<UserStatsGrouping, UserStats> compute(Instant refreshedAt, List<BirthDateCount> counts) {
+        LocalDate today = LocalDate.now();
+        long users = 0;
+        long withPhoneNumber = 0;
+        long withAddress = 0;
+        Map<Integer, Long> byAgeBucket = new TreeMap<>();
+        Map<UserStatsGrouping, Map<String, Long>> byBirthDate = new EnumMap<>(UserStatsGrouping.class);
+        for (UserStatsGrouping grouping : UserStatsGrouping.values()) {
+            byBirthDate.put(grouping, new TreeMap<>());
+        }
+        for (BirthDateCount count : counts) {
+            users += count.users();
+            withPhoneNumber += count.withPhoneNumber();
+            withAddress += count.withAddress();
+            int age = Period.between(count.birthDate(), today).getYears();
+            byAgeBucket.merge(ageBucket(age), count.users(), Long::sum);
+            byBirthDate.forEach((grouping, byKey) ->
+                    byKey.merge(grouping.key(count.birthDate()), count.users(), Long::sum));
+        }
+        Map<String, Long> byAge = new LinkedHashMap<>();
+        byAgeBucket.forEach((bucket, bucketUsers) -> byAge.put(ageBucketLabel(bucket), bucketUsers));
+
+        Map<UserStatsGrouping, UserStats> result = new EnumMap<>(UserStatsGrouping.class);
+        for (UserStatsGrouping grouping : UserStatsGrouping.values()) {
+            result.put(grouping, new UserStats(refreshedAt, users, share(withPhoneNumber, users),
+                    share(withAddress, users), byBirthDate.get(grouping), byAge));
+        }
+        return result;
+    }
+
+    // buckets start at user.min.age; users younger than that, e.g. from before the minimum was raised, share one
+    private int ageBucket(int age) {
+        int minAge = userProperties.min().age();
+        if (age < minAge) {
+            return -1;
+        }
+        int years = userProperties.stats().ageBucketYears();
+        return minAge + (age - minAge) / years * years;
+    }
+
+    private String ageBucketLabel(int bucket) {
+        if (bucket < 0) {
+            return "<" + userProperties.min().age();
+        }
+        return bucket + "-" + (bucket + userProperties.stats().ageBucketYears() - 1);
+    }
+
+    private static double share(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+}
@@ -0,0 +1,19 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+// the selected fields of a user by property name, read without a managed entity and serialized as a plain object
+public record UserView(@JsonValue Map<String, Object> fields) {
+
+    public UUID id() {
+        return (UUID) fields.get(UserField.ID.getProperty());
+    }
+
+    public LocalDate birthDate() {
+        return (LocalDate) fields.get(UserField.BIRTH_DATE.getProperty());
+    }
+}
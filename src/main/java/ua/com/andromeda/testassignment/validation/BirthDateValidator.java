@@ -1,24 +1,42 @@
 package ua.com.andromeda.testassignment.validation;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
-import ua.com.andromeda.testassignment.config.PropertiesLoader;
+import ua.com.andromeda.testassignment.config.UserProperties;
 import ua.com.andromeda.testassignment.validation.annotation.BirthDate;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 public class BirthDateValidator implements ConstraintValidator<BirthDate, LocalDate> {
+    private final UserProperties userProperties;
+    private final Timer timer;
+
+    public BirthDateValidator(UserProperties userProperties, MeterRegistry meterRegistry) {
+        this.userProperties = userProperties;
+        this.timer = Timer.builder("user.validation")
+                .tag("constraint", BirthDate.class.getSimpleName())
+                .register(meterRegistry);
+    }
 
     @Override
     public boolean isValid(LocalDate value, ConstraintValidatorContext context) {
+        long start = System.nanoTime();
+        try {
+            return isAdult(value);
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean isAdult(LocalDate value) {
         if (value == null) return false;
 
         LocalDate now = LocalDate.now();
         long userFullYears = ChronoUnit.YEARS.between(value, now);
-        Properties properties = PropertiesLoader.loadProperties("application.properties");
-        int minAge = Integer.parseInt(properties.getProperty("user.min.age"));
-        return userFullYears >= minAge;
+        return userFullYears >= userProperties.min().age();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package ua.com.andromeda.testassignment.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.i18n.phonenumbers.NumberParseException;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.google.i18n.phonenumbers.Phonenumber;
+import org.springframework.stereotype.Component;
+import ua.com.andromeda.testassignment.config.UserProperties;
+
+import java.util.Optional;
+
+@Component
+public class PhoneNumberNormalizer {
+    private final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
+    private final String region;
+    private final Cache<String, Optional<String>> e164Cache;
+
+    public PhoneNumberNormalizer(UserProperties userProperties) {
+        this.region = userProperties.phone().region();
+        this.e164Cache = Caffeine.newBuilder()
+                .maximumSize(userProperties.phone().cacheSize())
+                .build();
+    }
+
+    // empty for the same values PhoneNumberUtil.isPossibleNumber(value, region) rejects
+    public Optional<String> toE164(String phoneNumber) {
+        return e164Cache.get(phoneNumber, this::parseToE164);
+    }
+
+    public String toE164OrNull(String phoneNumber) {
+        if (phoneNumber == null) return null;
+        return toE164(phoneNumber).orElse(null);
+    }
+
+    private Optional<String> parseToE164(String phoneNumber) {
+        try {
+            Phonenumber.PhoneNumber parsed = phoneNumberUtil.parse(phoneNumber, region);
+            if (!phoneNumberUtil.isPossibleNumber(parsed)) {
+                return Optional.empty();
+            }
+            return Optional.of(phoneNumberUtil.format(parsed, PhoneNumberUtil.PhoneNumberFormat.E164));
+        } catch (NumberParseException ex) {
+            return Optional.empty();
+        }
+    }
+}
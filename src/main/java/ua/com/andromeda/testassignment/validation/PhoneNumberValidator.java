@@ -1,13 +1,31 @@
 package ua.com.andromeda.testassignment.validation;
 
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import ua.com.andromeda.testassignment.validation.annotation.PhoneNumber;
 
+import java.util.concurrent.TimeUnit;
+
 public class PhoneNumberValidator implements ConstraintValidator<PhoneNumber, String> {
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+    private final Timer timer;
+
+    public PhoneNumberValidator(PhoneNumberNormalizer phoneNumberNormalizer, MeterRegistry meterRegistry) {
+        this.phoneNumberNormalizer = phoneNumberNormalizer;
+        this.timer = Timer.builder("user.validation")
+                .tag("constraint", PhoneNumber.class.getSimpleName())
+                .register(meterRegistry);
+    }
+
     @Override
     public boolean isValid(String value, ConstraintValidatorContext context) {
-        return value == null || PhoneNumberUtil.getInstance().isPossibleNumber(value, "UA");
+        long start = System.nanoTime();
+        try {
+            return value == null || phoneNumberNormalizer.toE164(value).isPresent();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 }
@@ -0,0 +1,3 @@
+-- A constant default is stored in the catalog, so adding the column does not rewrite the table.
+alter table users
+    add column if not exists version bigint not null default 0;
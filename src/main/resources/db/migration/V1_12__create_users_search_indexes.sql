@@ -0,0 +1,11 @@
+-- Search reads these in order, so a page costs the same however many users match. The "C" collation orders by
+-- code point, which the prefix range built in UserRepositoryImpl relies on. The expressions must match it.
+-- Built concurrently like the other indexes, see V1_6.
+drop index concurrently if exists users_last_name_search_idx;
+create index concurrently users_last_name_search_idx on users ((lower(last_name) collate "C"), id);
+
+drop index concurrently if exists users_first_name_search_idx;
+create index concurrently users_first_name_search_idx on users ((lower(first_name) collate "C"), id);
+
+drop index concurrently if exists users_email_search_idx;
+create index concurrently users_email_search_idx on users ((lower(email) collate "C"), id);
@@ -0,0 +1,39 @@
+-- Distinct first and last names, so a misspelled query is matched against a few thousand names instead of every
+-- user. Names that are no longer used are kept; they only lead to an empty result.
+create table if not exists user_search_terms
+(
+    term varchar(255) primary key
+);
+
+create index if not exists user_search_terms_trgm_idx on user_search_terms using gin (term gin_trgm_ops);
+
+insert into user_search_terms (term)
+select lower(first_name) from users
+union
+select lower(last_name) from users
+on conflict do nothing;
+
+-- statement level, so a bulk import adds its names with one insert
+create or replace function add_user_search_terms() returns trigger as
+$$
+begin
+    insert into user_search_terms (term)
+    select lower(first_name) from changed_users
+    union
+    select lower(last_name) from changed_users
+    on conflict do nothing;
+    return null;
+end;
+$$ language plpgsql;
+
+drop trigger if exists users_insert_search_terms on users;
+create trigger users_insert_search_terms
+    after insert on users
+    referencing new table as changed_users
+    for each statement execute function add_user_search_terms();
+
+drop trigger if exists users_update_search_terms on users;
+create trigger users_update_search_terms
+    after update on users
+    referencing new table as changed_users
+    for each statement execute function add_user_search_terms();
@@ -0,0 +1,9 @@
+-- One row per birth date, a few tens of thousands at most, so statistics by year, month or age are computed from the
+-- view instead of the whole table. Refreshed by UserStatsService.
+create materialized view if not exists user_birth_date_stats as
+select birth_date, count(*) as users, count(phone_number) as with_phone_number, count(address) as with_address
+from users
+group by birth_date;
+
+-- required by refresh materialized view concurrently, which keeps the view readable during a refresh
+create unique index if not exists user_birth_date_stats_birth_date_idx on user_birth_date_stats (birth_date);
@@ -0,0 +1,59 @@
+-- Changes of users, written by triggers in the transaction of the change, so that every path that writes users,
+-- including bulk import and partial updates, is covered. UserOutboxRelay delivers and deletes them.
+create table if not exists user_outbox
+(
+    id          bigint generated always as identity primary key,
+    user_id     uuid        not null,
+    type        varchar(16) not null,
+    payload     jsonb,
+    occurred_at timestamptz not null default now()
+);
+
+-- a single row: the offset of the last delivered event, and the lock that lets one relay run at a time
+create table if not exists user_outbox_relay
+(
+    id          int primary key check (id = 1),
+    last_offset bigint not null
+);
+
+insert into user_outbox_relay (id, last_offset)
+values (1, 0)
+on conflict do nothing;
+
+-- statement level, so a batch insert adds its events with one insert
+create or replace function enqueue_user_events() returns trigger as
+$$
+begin
+    if tg_op = 'DELETE' then
+        insert into user_outbox (user_id, type)
+        select id, 'DELETED' from old_users;
+    else
+        insert into user_outbox (user_id, type, payload)
+        select id,
+               case tg_op when 'INSERT' then 'CREATED' else 'UPDATED' end,
+               jsonb_build_object('id', id, 'email', email, 'firstName', first_name, 'lastName', last_name,
+                                  'birthDate', birth_date, 'address', address, 'phoneNumber', phone_number,
+                                  'phoneNumberE164', phone_number_e164, 'version', version)
+        from new_users;
+    end if;
+    return null;
+end;
+$$ language plpgsql;
+
+drop trigger if exists users_insert_events on users;
+create trigger users_insert_events
+    after insert on users
+    referencing new table as new_users
+    for each statement execute function enqueue_user_events();
+
+drop trigger if exists users_update_events on users;
+create trigger users_update_events
+    after update on users
+    referencing new table as new_users
+    for each statement execute function enqueue_user_events();
+
+drop trigger if exists users_delete_events on users;
+create trigger users_delete_events
+    after delete on users
+    referencing old table as old_users
+    for each statement execute function enqueue_user_events();
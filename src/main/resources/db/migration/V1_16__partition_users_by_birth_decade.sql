@@ -0,0 +1,204 @@
+-- Replaces the users heap by a table partitioned by birth decade, so that birth date ranges only read the partitions
+-- they cover and vacuum and index maintenance work on one decade at a time. Runs outside of a transaction (see .conf)
+-- and only holds an exclusive lock on users for the final swap:
+-- 1. an empty partitioned table with all indexes, which a trigger keeps up to date with every change to users
+-- 2. the existing rows copied in batches by id, each batch committed on its own
+-- 3. the tables swapped, and the triggers and the statistics view moved over, in one short transaction
+-- An interrupted migration can be repeated; the copy skips rows that are already there.
+
+-- the primary key has to include the partition key, so ids are no longer unique by constraint, only by being UUIDs
+create table if not exists users_partitioned
+(
+    like users including defaults including constraints,
+    primary key (id, birth_date)
+) partition by range (birth_date);
+
+create table if not exists users_before_1900 partition of users_partitioned for values from (minvalue) to ('1900-01-01');
+
+do
+$$
+    begin
+        for decade in 1900..2020 by 10
+            loop
+                execute format('create table if not exists %I partition of users_partitioned for values from (%L) to (%L)',
+                               'users_' || decade || 's', make_date(decade, 1, 1), make_date(decade + 10, 1, 1));
+            end loop;
+    end
+$$;
+
+-- later decades until create_users_partitions adds them
+create table if not exists users_default partition of users_partitioned default;
+
+-- built on the empty table, so the copy maintains them instead of a build locking the table afterwards
+create index if not exists users_partitioned_birth_date_id_idx on users_partitioned (birth_date, id);
+create index if not exists users_partitioned_email_idx on users_partitioned (email);
+create index if not exists users_partitioned_email_search_idx on users_partitioned (lower(email) collate "C", id);
+create index if not exists users_partitioned_first_name_search_idx on users_partitioned (lower(first_name) collate "C", id);
+create index if not exists users_partitioned_last_name_search_idx on users_partitioned (lower(last_name) collate "C", id);
+create index if not exists users_partitioned_phone_number_e164_idx on users_partitioned (phone_number_e164);
+
+create or replace function copy_user_to_partitioned() returns trigger as
+$$
+begin
+    if tg_op <> 'INSERT' then
+        delete from users_partitioned where id = old.id and birth_date = old.birth_date;
+    end if;
+    if tg_op <> 'DELETE' then
+        insert into users_partitioned select new.*;
+    end if;
+    return null;
+end;
+$$ language plpgsql;
+
+drop trigger if exists users_copy_to_partitioned on users;
+create trigger users_copy_to_partitioned
+    after insert or update or delete on users
+    for each row execute function copy_user_to_partitioned();
+
+-- The batch is share locked while it is copied: an update of one of its rows waits for the commit, and its trigger
+-- then replaces the copy. An update committed before the batch read the row is copied in its latest version, which
+-- the trigger has inserted already.
+do
+$$
+    declare
+        batch_size constant int  := 10000;
+        last_id             uuid := '00000000-0000-0000-0000-000000000000';
+        batch_last_id       uuid;
+    begin
+        loop
+            select batch.id
+            into batch_last_id
+            from (select id from users where id > last_id order by id limit batch_size) batch
+            order by batch.id desc
+            limit 1;
+
+            exit when batch_last_id is null;
+
+            insert into users_partitioned
+            select *
+            from users
+            where id > last_id
+              and id <= batch_last_id
+            for share
+            on conflict do nothing;
+
+            last_id := batch_last_id;
+            commit;
+        end loop;
+    end
+$$;
+
+-- autovacuum analyzes the partitions but never the partitioned table itself
+analyze users_partitioned;
+
+-- filled now rather than in the swap, where a refresh would keep users locked
+create materialized view if not exists user_birth_date_stats_partitioned as
+select birth_date, count(*) as users, count(phone_number) as with_phone_number, count(address) as with_address
+from users_partitioned
+group by birth_date;
+
+create unique index if not exists user_birth_date_stats_partitioned_birth_date_idx
+    on user_birth_date_stats_partitioned (birth_date);
+
+-- PostgreSQL 14 crashes on an update that moves a row to another partition while users has both an update and
+-- a delete trigger with transition tables, so deletes are enqueued row by row. A moved row fires the delete
+-- trigger of its old partition as well, and is still in users when the trigger runs.
+create or replace function enqueue_user_deleted_event() returns trigger as
+$$
+begin
+    if not exists (select 1 from users where id = old.id) then
+        insert into user_outbox (user_id, type) values (old.id, 'DELETED');
+    end if;
+    return null;
+end;
+$$ language plpgsql;
+
+-- Waits at most a second at a time for the exclusive lock, so that long transactions on users, e.g. an export, do
+-- not hold up the queries queued behind the lock; the stale statistics view is replaced by the one built above.
+do
+$$
+    declare
+        attempts int := 0;
+    begin
+        perform set_config('lock_timeout', '1s', true);
+        loop
+            begin
+                lock table users in access exclusive mode;
+                exit;
+            exception
+                when lock_not_available then
+                    attempts := attempts + 1;
+                    if attempts = 60 then
+                        raise;
+                    end if;
+            end;
+        end loop;
+
+        drop materialized view user_birth_date_stats;
+        drop table users;
+        alter table users_partitioned rename to users;
+        alter table users rename constraint users_partitioned_pkey to users_pkey;
+        alter index users_partitioned_birth_date_id_idx rename to users_birth_date_id_idx;
+        alter index users_partitioned_email_idx rename to users_email_idx;
+        alter index users_partitioned_email_search_idx rename to users_email_search_idx;
+        alter index users_partitioned_first_name_search_idx rename to users_first_name_search_idx;
+        alter index users_partitioned_last_name_search_idx rename to users_last_name_search_idx;
+        alter index users_partitioned_phone_number_e164_idx rename to users_phone_number_e164_idx;
+        alter materialized view user_birth_date_stats_partitioned rename to user_birth_date_stats;
+        alter index user_birth_date_stats_partitioned_birth_date_idx rename to user_birth_date_stats_birth_date_idx;
+
+        create trigger users_insert_search_terms
+            after insert on users
+            referencing new table as changed_users
+            for each statement execute function add_user_search_terms();
+        create trigger users_update_search_terms
+            after update on users
+            referencing new table as changed_users
+            for each statement execute function add_user_search_terms();
+        create trigger users_insert_events
+            after insert on users
+            referencing new table as new_users
+            for each statement execute function enqueue_user_events();
+        create trigger users_update_events
+            after update on users
+            referencing new table as new_users
+            for each statement execute function enqueue_user_events();
+        create trigger users_delete_events
+            after delete on users
+            for each row execute function enqueue_user_deleted_event();
+    end
+$$;
+
+drop function copy_user_to_partitioned();
+
+-- the copy filled the indexes in id order, leaving them about half again as large as built ones; rebuilt one
+-- partition at a time without blocking writes
+reindex table concurrently users;
+
+-- Adds the missing decade partitions up to until, moving the rows of their decades out of users_default. Called by
+-- UserPartitionMaintenance; returns the partitions it created
+create or replace function create_users_partitions(until date) returns setof text as
+$$
+declare
+    partition   text;
+    lower_bound date;
+    upper_bound date;
+begin
+    -- instances maintaining the partitions at the same time would create the same table
+    perform pg_advisory_xact_lock(hashtext('create_users_partitions'));
+    for decade in 1900..extract(year from until)::int by 10
+        loop
+            partition := 'users_' || decade || 's';
+            continue when to_regclass(partition) is not null;
+            lower_bound := make_date(decade, 1, 1);
+            upper_bound := make_date(decade + 10, 1, 1);
+            -- attaching fails while users_default holds rows of the decade
+            execute format('create table %I (like users including defaults including constraints)', partition);
+            execute format('with moved as (delete from users_default where birth_date >= %L and birth_date < %L '
+                               || 'returning *) insert into %I select * from moved', lower_bound, upper_bound, partition);
+            execute format('alter table users attach partition %I for values from (%L) to (%L)',
+                           partition, lower_bound, upper_bound);
+            return next partition;
+        end loop;
+end;
+$$ language plpgsql;
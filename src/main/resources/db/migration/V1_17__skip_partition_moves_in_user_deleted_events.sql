@@ -0,0 +1,42 @@
+-- create_users_partitions moves rows out of users_default into a partition that is attached only afterwards, so
+-- while its delete runs the rows are in no partition of users and looked deleted to enqueue_user_deleted_event.
+-- The move now flags itself with a setting local to the transaction, and the trigger skips the rows it deletes.
+create or replace function enqueue_user_deleted_event() returns trigger as
+$$
+begin
+    if current_setting('user.partition_move', true) is distinct from 'on'
+        and not exists (select 1 from users where id = old.id) then
+        insert into user_outbox (user_id, type) values (old.id, 'DELETED');
+    end if;
+    return null;
+end;
+$$ language plpgsql;
+
+create or replace function create_users_partitions(until date) returns setof text as
+$$
+declare
+    partition   text;
+    lower_bound date;
+    upper_bound date;
+begin
+    -- instances maintaining the partitions at the same time would create the same table
+    perform pg_advisory_xact_lock(hashtext('create_users_partitions'));
+    for decade in 1900..extract(year from until)::int by 10
+        loop
+            partition := 'users_' || decade || 's';
+            continue when to_regclass(partition) is not null;
+            lower_bound := make_date(decade, 1, 1);
+            upper_bound := make_date(decade + 10, 1, 1);
+            -- attaching fails while users_default holds rows of the decade
+            execute format('create table %I (like users including defaults including constraints)', partition);
+            -- switched off right after, so deletes later in the caller's transaction are enqueued again
+            perform set_config('user.partition_move', 'on', true);
+            execute format('with moved as (delete from users_default where birth_date >= %L and birth_date < %L '
+                               || 'returning *) insert into %I select * from moved', lower_bound, upper_bound, partition);
+            perform set_config('user.partition_move', 'off', true);
+            execute format('alter table users attach partition %I for values from (%L) to (%L)',
+                           partition, lower_bound, upper_bound);
+            return next partition;
+        end loop;
+end;
+$$ language plpgsql;
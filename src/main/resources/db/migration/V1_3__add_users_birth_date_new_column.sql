@@ -0,0 +1,34 @@
+-- birth_date was created as timestamp(6) although the entity maps it to LocalDate.
+-- Converting it in place rewrites the whole table under an exclusive lock,
+-- so a date column is added next to it and kept in sync until the swap.
+-- Databases where the column is already a date are left untouched.
+do
+$$
+    begin
+        if exists(select 1
+                  from information_schema.columns
+                  where table_schema = current_schema()
+                    and table_name = 'users'
+                    and column_name = 'birth_date'
+                    and data_type <> 'date') then
+
+            alter table users
+                add column if not exists birth_date_new date;
+
+            create or replace function users_sync_birth_date_new() returns trigger as
+            $sync$
+            begin
+                new.birth_date_new := new.birth_date::date;
+                return new;
+            end;
+            $sync$ language plpgsql;
+
+            drop trigger if exists users_sync_birth_date_new on users;
+            create trigger users_sync_birth_date_new
+                before insert or update of birth_date
+                on users
+                for each row
+            execute function users_sync_birth_date_new();
+        end if;
+    end
+$$;
@@ -0,0 +1,48 @@
+-- Runs outside of a transaction (see .conf): every batch is committed on its own,
+-- so row locks are short-lived and the backfill can be resumed after a failure.
+do
+$$
+    declare
+        batch_size constant int  := 10000;
+        last_id             uuid := '00000000-0000-0000-0000-000000000000';
+        batch_last_id       uuid;
+    begin
+        if not exists(select 1
+                      from information_schema.columns
+                      where table_schema = current_schema()
+                        and table_name = 'users'
+                        and column_name = 'birth_date_new') then
+            return;
+        end if;
+
+        loop
+            select batch.id
+            into batch_last_id
+            from (select id from users where id > last_id order by id limit batch_size) batch
+            order by batch.id desc
+            limit 1;
+
+            exit when batch_last_id is null;
+
+            update users
+            set birth_date_new = birth_date::date
+            where id > last_id
+              and id <= batch_last_id
+              and birth_date_new is null;
+
+            last_id := batch_last_id;
+            commit;
+        end loop;
+
+        -- Validating a NOT VALID check in its own transaction only takes a SHARE UPDATE EXCLUSIVE
+        -- lock, and lets the SET NOT NULL in the next migration skip the full table scan.
+        alter table users
+            drop constraint if exists users_birth_date_new_not_null;
+        alter table users
+            add constraint users_birth_date_new_not_null check (birth_date_new is not null) not valid;
+        commit;
+
+        alter table users
+            validate constraint users_birth_date_new_not_null;
+    end
+$$;
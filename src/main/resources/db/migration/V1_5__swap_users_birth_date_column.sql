@@ -0,0 +1,25 @@
+-- Metadata-only changes: the exclusive lock is held for a moment regardless of table size.
+do
+$$
+    begin
+        if not exists(select 1
+                      from information_schema.columns
+                      where table_schema = current_schema()
+                        and table_name = 'users'
+                        and column_name = 'birth_date_new') then
+            return;
+        end if;
+
+        drop trigger users_sync_birth_date_new on users;
+        drop function users_sync_birth_date_new();
+
+        alter table users
+            drop column birth_date;
+        alter table users
+            rename column birth_date_new to birth_date;
+        alter table users
+            alter column birth_date set not null;
+        alter table users
+            drop constraint users_birth_date_new_not_null;
+    end
+$$;
@@ -0,0 +1,8 @@
+-- Concurrent builds do not block writes but cannot run inside a transaction,
+-- so Flyway executes this migration in autocommit mode. An interrupted build
+-- leaves an invalid index behind, hence the drop before each create.
+drop index concurrently if exists users_birth_date_id_idx;
+create index concurrently users_birth_date_id_idx on users (birth_date, id);
+
+drop index concurrently if exists users_email_idx;
+create index concurrently users_email_idx on users (email);
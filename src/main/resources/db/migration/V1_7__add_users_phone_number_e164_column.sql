@@ -0,0 +1,4 @@
+-- Nullable without a default: adding the column does not rewrite the table.
+-- Existing rows are normalized by the V1_8 Java migration.
+alter table users
+    add column if not exists phone_number_e164 varchar(16);
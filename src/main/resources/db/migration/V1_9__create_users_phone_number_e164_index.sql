@@ -0,0 +1,2 @@
+drop index concurrently if exists users_phone_number_e164_idx;
+create index concurrently users_phone_number_e164_idx on users (phone_number_e164);
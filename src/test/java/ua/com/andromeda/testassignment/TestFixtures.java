@@ -0,0 +1,24 @@
+package ua.com.andromeda.testassignment;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import ua.com.andromeda.testassignment.config.UserProperties;
+
+import java.util.Map;
+
+// Builds what unit tests need without starting the application context
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    public static UserProperties userProperties() {
+        return userProperties(Map.of());
+    }
+
+    // bound like the application binds user.*, so settings a test does not name keep their defaults
+    public static UserProperties userProperties(Map<String, String> properties) {
+        return new Binder(new MapConfigurationPropertySource(properties))
+                .bindOrCreate("user", UserProperties.class);
+    }
+}
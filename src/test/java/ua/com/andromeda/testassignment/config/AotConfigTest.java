@@ -0,0 +1,60 @@
+package ua.com.andromeda.testassignment.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.AotDetector;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.core.SpringProperties;
+import org.springframework.mock.env.MockEnvironment;
+import ua.com.andromeda.testassignment.user.User;
+import ua.com.andromeda.testassignment.validation.PhoneNumberValidator;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ua.com.andromeda.testassignment.TestFixtures.userProperties;
+
+class AotConfigTest {
+    private static final Map<String, String> WITH_REPLICA =
+            Map.of("user.replicas.urls", "jdbc:postgresql://replica/postgres");
+
+    @AfterEach
+    void tearDown() {
+        SpringProperties.setProperty(AotDetector.AOT_ENABLED, null);
+    }
+
+    @Test
+    void registerHints_shouldCoverEntityValidatorsAndPhoneMetadata() {
+        RuntimeHints hints = new RuntimeHints();
+
+        new AotConfig.UserRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(User.class, "getFirstName").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(PhoneNumberValidator.class)
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("com/google/i18n/phonenumbers/data/PhoneNumberMetadataProto_UA").test(hints));
+    }
+
+    @Test
+    void constructor_shouldRefuseSettingsThatChooseBeans_whenAheadOfTimeProcessed() {
+        SpringProperties.setFlag(AotDetector.AOT_ENABLED);
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("reactive");
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> new AotConfig(environment, userProperties(WITH_REPLICA)));
+
+        assertTrue(ex.getMessage().contains("the reactive profile, user.replicas.urls"), ex.getMessage());
+    }
+
+    @Test
+    void constructor_shouldAcceptAnySettings_whenNotAheadOfTimeProcessed() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("reactive");
+
+        assertDoesNotThrow(() -> new AotConfig(environment, userProperties(WITH_REPLICA)));
+    }
+}
@@ -0,0 +1,168 @@
+package ua.com.andromeda.testassignment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static ua.com.andromeda.testassignment.TestFixtures.userProperties;
+
+class ReplicaRoutingDataSourceTest {
+    HikariDataSource primary;
+    HikariDataSource firstReplica;
+    HikariDataSource secondReplica;
+    ReadYourWrites readYourWrites;
+    ReplicaRoutingDataSource target;
+
+    static HikariDataSource dataSource() throws SQLException {
+        HikariDataSource dataSource = mock(HikariDataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = dataSource();
+        firstReplica = dataSource();
+        secondReplica = dataSource();
+        readYourWrites = new ReadYourWrites(userProperties(Map.of(
+                "user.replicas.urls", "first,second",
+                "user.replicas.read-your-writes-window", "PT1M")));
+        target = new ReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica), readYourWrites);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void getConnection_shouldTakeReplicasInTurn_whenTransactionIsReadOnly() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        target.getConnection();
+        target.getConnection();
+        target.getConnection();
+
+        verify(firstReplica, times(2)).getConnection();
+        verify(secondReplica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void getConnection_shouldTakePrimary_whenTransactionIsNotReadOnly() throws SQLException {
+        target.getConnection();
+
+        verify(primary).getConnection();
+        verifyNoInteractions(firstReplica, secondReplica);
+    }
+
+    @Test
+    void getConnection_shouldRouteByTransactionBegunAfterwards_whenProxiedLazily() throws SQLException {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(target);
+        Connection connection = dataSource.getConnection();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        connection.createStatement();
+
+        verify(firstReplica).getConnection();
+    }
+
+    @Test
+    void getConnection_shouldTakePrimary_whenClientWroteWithinWindow() throws SQLException {
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(new MockHttpServletRequest(), writeResponse));
+        UUID id = UUID.randomUUID();
+        readYourWrites.written(id);
+        Cookie cookie = writeResponse.getCookie(ReadYourWrites.COOKIE_NAME);
+        assertNotNull(cookie);
+        assertEquals(60, cookie.getMaxAge());
+
+        MockHttpServletRequest readRequest = new MockHttpServletRequest();
+        readRequest.setCookies(cookie);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(readRequest));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        target.getConnection();
+
+        verify(primary).getConnection();
+        assertTrue(readYourWrites.recentlyWritten(id));
+    }
+
+    @Test
+    void getConnection_shouldTakeReplica_whenCookieIsExpiredOrNotSetByWrite() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        for (long until : new long[]{System.currentTimeMillis() - 1, System.currentTimeMillis() + 3_600_000}) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setCookies(new Cookie(ReadYourWrites.COOKIE_NAME, Long.toString(until)));
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+            target.getConnection();
+        }
+
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void recentlyWritten_shouldOnlyHoldWrittenIds() {
+        UUID written = UUID.randomUUID();
+
+        readYourWrites.written(written);
+
+        assertTrue(readYourWrites.recentlyWritten(written));
+        assertFalse(readYourWrites.recentlyWritten(UUID.randomUUID()));
+    }
+
+    @Test
+    void readForCache_shouldTakePrimary_onlyWithinWindowAfterWrite() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        readYourWrites.readForCache(this::getConnection);
+        verify(primary, never()).getConnection();
+
+        readYourWrites.written(UUID.randomUUID());
+        readYourWrites.readForCache(this::getConnection);
+        target.getConnection();
+
+        verify(primary).getConnection();
+        verify(firstReplica).getConnection();
+        verify(secondReplica).getConnection();
+    }
+
+    private Connection getConnection() {
+        try {
+            return target.getConnection();
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    void written_shouldChangeNothing_whenThereAreNoReplicas() {
+        ReadYourWrites withoutReplicas = new ReadYourWrites(userProperties());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+
+        UUID id = UUID.randomUUID();
+
+        withoutReplicas.written(id);
+
+        assertNull(response.getCookie(ReadYourWrites.COOKIE_NAME));
+        assertFalse(withoutReplicas.recentlyWritten(id));
+    }
+}
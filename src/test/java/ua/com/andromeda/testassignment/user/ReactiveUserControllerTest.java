@@ -0,0 +1,196 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import ua.com.andromeda.testassignment.config.BinaryFormatConfig;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.exception.InvalidUUIDException;
+import ua.com.andromeda.testassignment.exception.PreconditionFailedException;
+import ua.com.andromeda.testassignment.exception.UserNotFoundException;
+import ua.com.andromeda.testassignment.exception.handler.ReactiveRestResponseEntityExceptionHandler;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveUserController.class)
+@ActiveProfiles("reactive")
+@EnableConfigurationProperties(UserProperties.class)
+@Import({ReactiveRestResponseEntityExceptionHandler.class, PhoneNumberNormalizer.class, SimpleMeterRegistry.class,
+        BinaryFormatConfig.class})
+class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService reactiveUserService;
+
+    @MockBean
+    private UserImportService userImportService;
+
+    @MockBean
+    private UserStatsService userStatsService;
+
+    private final String baseUrl = "/users";
+
+    User getDefaultUser() {
+        User user = new User();
+        user.setFirstName("Andrii");
+        user.setLastName("Heraskin");
+        user.setEmail("andromeda@gmail.com");
+        user.setAddress("Peremohy Street 20");
+        user.setBirthDate(LocalDate.of(2000, 1, 1));
+        user.setPhoneNumber("+380678955568");
+        return user;
+    }
+
+    @Test
+    void findById_shouldReturnUserWithETag() {
+        UUID id = UUID.randomUUID();
+        User user = getDefaultUser();
+        user.setId(id);
+        user.setVersion(2);
+        when(reactiveUserService.findById(id.toString())).thenReturn(Mono.just(user));
+
+        webTestClient.get().uri(baseUrl + "/" + id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"")
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo(id.toString())
+                .jsonPath("$.data.email").isEqualTo("andromeda@gmail.com");
+    }
+
+    @Test
+    void findById_shouldReturnJsonByDefaultAndCborWhenAccepted() throws Exception {
+        UUID id = UUID.randomUUID();
+        User user = getDefaultUser();
+        user.setId(id);
+        when(reactiveUserService.findById(id.toString())).thenReturn(Mono.just(user));
+
+        webTestClient.get().uri(baseUrl + "/" + id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON);
+        byte[] body = webTestClient.get().uri(baseUrl + "/" + id)
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody().returnResult().getResponseBody();
+
+        JsonNode data = new ObjectMapper(new CBORFactory()).readTree(body).get("data");
+        assertEquals("andromeda@gmail.com", data.get("email").asText());
+        assertEquals("2000-01-01", data.get("birthDate").asText());
+    }
+
+    @Test
+    void findById_shouldReturnNotModifiedWithoutLoadingUser_whenETagMatches() {
+        UUID id = UUID.randomUUID();
+        when(reactiveUserService.findVersionById(id.toString())).thenReturn(Mono.just(2L));
+
+        webTestClient.get().uri(baseUrl + "/" + id)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        verify(reactiveUserService, never()).findById(any());
+    }
+
+    @Test
+    void findById_shouldReturnPlainJsonError_whenIdIsInvalid() {
+        when(reactiveUserService.findById("x")).thenReturn(Mono.error(new InvalidUUIDException()));
+
+        webTestClient.get().uri(baseUrl + "/x")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Invalid UUID")
+                .jsonPath("$.status").isEqualTo(400);
+    }
+
+    @Test
+    void findById_shouldReturnNotFound_whenUserDoesNotExist() {
+        String id = UUID.randomUUID().toString();
+        when(reactiveUserService.findById(id)).thenReturn(Mono.error(new UserNotFoundException(id)));
+
+        webTestClient.get().uri(baseUrl + "/" + id)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User with id='" + id + "' not found");
+    }
+
+    @Test
+    void findAllByBirthDateBetweenAfter_shouldReturnBadRequest_whenPageSizeIsZero() {
+        webTestClient.get().uri(baseUrl + "/search/birthDate/between?from=1990-10-02&to=2000-11-03&size=0&cursor=")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Page size must be between 1 and 1000");
+        verifyNoInteractions(reactiveUserService);
+    }
+
+    @Test
+    void save_shouldReturnBadRequest_whenUserIsInvalid() {
+        User user = getDefaultUser();
+        user.setFirstName(null);
+
+        webTestClient.post().uri(baseUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400);
+        verify(reactiveUserService, never()).save(any());
+    }
+
+    @Test
+    void update_shouldReturnPreconditionFailed_whenVersionDoesNotMatch() {
+        User user = getDefaultUser();
+        user.setId(UUID.randomUUID());
+        when(reactiveUserService.update(any(), eq(Set.of(1L))))
+                .thenReturn(Mono.error(new PreconditionFailedException()));
+
+        webTestClient.put().uri(baseUrl)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    void findAllByBirthDateBetween_shouldReturnBadRequest_whenParameterIsMissing() {
+        webTestClient.get().uri(baseUrl + "/search/birthDate/between?from=2000-01-01")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Required parameter 'to' is not present.");
+        verify(reactiveUserService, never()).findAllByBirthDateBetween(any(), any(), any(), any());
+    }
+}
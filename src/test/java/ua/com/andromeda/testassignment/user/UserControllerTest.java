@@ -1,6 +1,11 @@
 package ua.com.andromeda.testassignment.user;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,29 +13,52 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import ua.com.andromeda.testassignment.config.BinaryFormatConfig;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.BatchGetResult;
+import ua.com.andromeda.testassignment.dto.BulkImportResult;
+import ua.com.andromeda.testassignment.dto.BulkImportResult.RecordResult;
+import ua.com.andromeda.testassignment.dto.CompactPage;
+import ua.com.andromeda.testassignment.dto.CursorPage;
 import ua.com.andromeda.testassignment.dto.Dto;
+import ua.com.andromeda.testassignment.dto.UserStats;
+import ua.com.andromeda.testassignment.exception.InvalidFieldException;
 import ua.com.andromeda.testassignment.exception.InvalidRangeException;
+import ua.com.andromeda.testassignment.exception.InvalidSearchQueryException;
 import ua.com.andromeda.testassignment.exception.InvalidUUIDException;
+import ua.com.andromeda.testassignment.exception.PreconditionFailedException;
+import ua.com.andromeda.testassignment.exception.TooManyIdsException;
 import ua.com.andromeda.testassignment.exception.UserNotFoundException;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static java.lang.Integer.parseInt;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -38,6 +66,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(UserController.class)
 @AutoConfigureMockMvc(addFilters = false)
 @ExtendWith(MockitoExtension.class)
+@EnableConfigurationProperties(UserProperties.class)
+@Import({PhoneNumberNormalizer.class, SimpleMeterRegistry.class, BinaryFormatConfig.class})
 class UserControllerTest {
 
     @Autowired
@@ -46,8 +76,21 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserImportService userImportService;
+
+    @MockBean
+    private UserStatsService userStatsService;
+
+    // answers nothing, so every request reaches the mocked services
+    @MockBean
+    private UserResponseCache userResponseCache;
+
     @Autowired
     ObjectMapper objectMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
     private final String baseUrl = "/users";
 
     User getDefaultUser() {
@@ -61,6 +104,20 @@ class UserControllerTest {
         return user;
     }
 
+    UserView view(User user) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", user.getId());
+        fields.put("email", user.getEmail());
+        fields.put("firstName", user.getFirstName());
+        fields.put("lastName", user.getLastName());
+        fields.put("birthDate", user.getBirthDate());
+        fields.put("address", user.getAddress());
+        fields.put("phoneNumber", user.getPhoneNumber());
+        fields.put("phoneNumberE164", user.getPhoneNumberE164());
+        fields.put("version", user.getVersion());
+        return new UserView(fields);
+    }
+
     @Test
     void findById_shouldReturnUser() throws Exception {
         UUID id = UUID.randomUUID();
@@ -74,6 +131,144 @@ class UserControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(new Dto<>(user))));
     }
 
+    @Test
+    void findById_shouldReturnETag() throws Exception {
+        UUID id = UUID.randomUUID();
+        User user = getDefaultUser();
+        user.setId(id);
+        user.setVersion(2);
+        when(userService.findById(id.toString())).thenReturn(user);
+
+        mockMvc.perform(get(baseUrl + "/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("$.data.version").value(2));
+    }
+
+    @Test
+    void findById_shouldReturnCbor_whenAccepted() throws Exception {
+        UUID id = UUID.randomUUID();
+        User user = getDefaultUser();
+        user.setId(id);
+        when(userService.findById(id.toString())).thenReturn(user);
+
+        byte[] body = mockMvc.perform(get(baseUrl + "/" + id).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode data = new ObjectMapper(new CBORFactory()).readTree(body).get("data");
+        assertEquals("andromeda@gmail.com", data.get("email").asText());
+        assertEquals("2000-01-01", data.get("birthDate").asText());
+    }
+
+    @Test
+    void findById_shouldReturnSmile_whenAccepted() throws Exception {
+        UUID id = UUID.randomUUID();
+        User user = getDefaultUser();
+        user.setId(id);
+        when(userService.findById(id.toString())).thenReturn(user);
+
+        byte[] body = mockMvc.perform(get(baseUrl + "/" + id).accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode data = new ObjectMapper(new SmileFactory()).readTree(body).get("data");
+        assertEquals("andromeda@gmail.com", data.get("email").asText());
+        assertEquals("2000-01-01", data.get("birthDate").asText());
+    }
+
+    @Test
+    void save_shouldReadCborBody() throws Exception {
+        User user = getDefaultUser();
+        when(userService.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(post(baseUrl)
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(new ObjectMapper(new CBORFactory()).findAndRegisterModules().writeValueAsBytes(user)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.birthDate").value("2000-01-01"));
+    }
+
+    @Test
+    void findById_shouldReturnNotModified_matchingETag() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(userService.findVersionById(id.toString())).thenReturn(2L);
+
+        mockMvc.perform(get(baseUrl + "/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(content().string(""));
+        verify(userService, never()).findById(any());
+    }
+
+    @Test
+    void findById_shouldReturnUser_staleETag() throws Exception {
+        UUID id = UUID.randomUUID();
+        User user = getDefaultUser();
+        user.setId(id);
+        user.setVersion(3);
+        when(userService.findVersionById(id.toString())).thenReturn(3L);
+        when(userService.findById(id.toString())).thenReturn(user);
+
+        mockMvc.perform(get(baseUrl + "/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void findAllById_shouldReturnUsersAndMissingIds() throws Exception {
+        UUID id = UUID.randomUUID();
+        String missingId = UUID.randomUUID().toString();
+        User user = getDefaultUser();
+        user.setId(id);
+        List<String> ids = List.of(id.toString(), missingId);
+        when(userService.findAllById(ids)).thenReturn(new BatchGetResult(Map.of(id, user), List.of(missingId)));
+
+        mockMvc.perform(post(baseUrl + "/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.users['" + id + "'].email").value(user.getEmail()))
+                .andExpect(jsonPath("$.data.missing[0]").value(missingId));
+    }
+
+    @Test
+    void findAllById_shouldReturnBadRequest_tooManyIds() throws Exception {
+        when(userService.findAllById(any())).thenThrow(new TooManyIdsException(1));
+
+        mockMvc.perform(post(baseUrl + "/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"a\", \"b\"]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("At most 1 ids can be requested at once"));
+    }
+
+    @Test
+    void getStats_shouldReturnStatsGroupedByMonth() throws Exception {
+        UserStats stats = new UserStats(Instant.parse("2023-10-01T12:00:00Z"), 4, 0.5, 0.25,
+                Map.of("1990-05", 4L), Map.of("28-37", 4L));
+        when(userStatsService.getStats(UserStatsGrouping.MONTH)).thenReturn(stats);
+
+        mockMvc.perform(get(baseUrl + "/stats")
+                        .param("groupBy", "month"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(new Dto<>(stats))))
+                .andExpect(jsonPath("$.data.refreshedAt").value("2023-10-01T12:00:00Z"));
+    }
+
+    @Test
+    void getStats_shouldReturnBadRequest_unsupportedGrouping() throws Exception {
+        mockMvc.perform(get(baseUrl + "/stats")
+                        .param("groupBy", "day"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unsupported stats grouping: day"));
+    }
+
     @Test
     void findById_shouldReturnBadRequest_invalidUUID() throws Exception {
         String invalidId = "invalidUUID";
@@ -86,6 +281,20 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message").value(exception.getMessage()));
     }
 
+    @Test
+    void findById_shouldCountErrorsByExceptionType() throws Exception {
+        String invalidId = "invalidUUID";
+        when(userService.findById(invalidId)).thenThrow(new InvalidUUIDException());
+        double before = meterRegistry.counter("user.errors",
+                "exception", "InvalidUUIDException", "status", "400").count();
+
+        mockMvc.perform(get(baseUrl + "/" + invalidId))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(before + 1, meterRegistry.counter("user.errors",
+                "exception", "InvalidUUIDException", "status", "400").count());
+    }
+
     @Test
     void findById_shouldReturnNotFound() throws Exception {
         UUID notFoundId = UUID.randomUUID();
@@ -96,6 +305,20 @@ class UserControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void findById_shouldReturnErrorResponseBody_notFound() throws Exception {
+        UUID notFoundId = UUID.randomUUID();
+        UserNotFoundException exception = new UserNotFoundException(notFoundId.toString());
+        when(userService.findById(notFoundId.toString())).thenThrow(exception);
+
+        mockMvc.perform(get(baseUrl + "/" + notFoundId))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.timestamp").isString())
+                .andExpect(jsonPath("$.message").value(exception.getMessage()))
+                .andExpect(jsonPath("$.status").value(404));
+    }
+
     @Test
     void findAllByBirthDateBetween_shouldThrowInvalidRangeException() throws Exception {
         MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
@@ -104,7 +327,7 @@ class UserControllerTest {
         params.add("from", from.toString());
         params.add("to", to.toString());
         String errMessage = "'From' date must be less than 'to'";
-        when(userService.findAllByBirthDateBetween(eq(from), eq(to), any(Pageable.class)))
+        when(userService.findAllByBirthDateBetween(eq(from), eq(to), any(), any(Pageable.class)))
                 .thenThrow(new InvalidRangeException(errMessage));
 
         mockMvc.perform(get(baseUrl + "/search/birthDate/between")
@@ -114,7 +337,7 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message").value(errMessage));
 
         verify(userService, times(1))
-                .findAllByBirthDateBetween(eq(from), eq(to), any(Pageable.class));
+                .findAllByBirthDateBetween(eq(from), eq(to), any(), any(Pageable.class));
     }
 
     @Test
@@ -122,24 +345,249 @@ class UserControllerTest {
         MultiValueMap<String, String> requestParams = getParams();
         LocalDate from = LocalDate.parse(requestParams.getFirst("from"));
         LocalDate to = LocalDate.parse(requestParams.getFirst("to"));
-        List<User> users = List.of(new User(), new User(), new User(), new User());
+        List<UserView> users = List.of(view(getDefaultUser()), view(getDefaultUser()));
         Pageable pageable = PageRequest.of(
                 parseInt(requestParams.getFirst("page")),
                 parseInt(requestParams.getFirst("size"))
         );
-        Page<User> expectedPage = new PageImpl<>(users, pageable, users.size());
+        Page<UserView> expectedPage = new PageImpl<>(users, pageable, 42);
 
-        when(userService.findAllByBirthDateBetween(from, to, pageable))
+        when(userService.findAllByBirthDateBetween(from, to, EnumSet.allOf(UserField.class), pageable))
                 .thenReturn(expectedPage);
 
         mockMvc.perform(get(baseUrl + "/search/birthDate/between")
                         .contentType(MediaType.APPLICATION_JSON)
                         .params(requestParams))
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(new Dto<>(expectedPage))));
+                .andExpect(content().json(objectMapper.writeValueAsString(new Dto<>(CompactPage.of(expectedPage)))))
+                .andExpect(jsonPath("$.data.totalElements").value(42))
+                .andExpect(jsonPath("$.data.content[0].email").value(getDefaultUser().getEmail()))
+                .andExpect(jsonPath("$.data.pageable").doesNotExist());
 
         verify(userService, times(1))
-                .findAllByBirthDateBetween(from, to, pageable);
+                .findAllByBirthDateBetween(from, to, EnumSet.allOf(UserField.class), pageable);
+    }
+
+    @Test
+    void findAllByBirthDateBetween_shouldSelectRequestedFields() throws Exception {
+        LocalDate from = LocalDate.parse("1990-10-02");
+        LocalDate to = LocalDate.parse("2000-11-03");
+        Set<UserField> fields = EnumSet.of(UserField.ID, UserField.BIRTH_DATE, UserField.EMAIL);
+        UserView user = new UserView(Map.of("id", UUID.randomUUID(), "birthDate", from, "email", "a@b.c"));
+        when(userService.findAllByBirthDateBetween(from, to, fields, PageRequest.of(0, 10)))
+                .thenReturn(new PageImpl<>(List.of(user), PageRequest.of(0, 10), 1));
+
+        mockMvc.perform(get(baseUrl + "/search/birthDate/between")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("fields", "email"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].email").value("a@b.c"))
+                .andExpect(jsonPath("$.data.content[0].firstName").doesNotExist());
+    }
+
+    @Test
+    void findAllByBirthDateBetween_shouldReturnBadRequest_unsupportedField() throws Exception {
+        mockMvc.perform(get(baseUrl + "/search/birthDate/between")
+                        .param("from", "1990-10-02")
+                        .param("to", "2000-11-03")
+                        .param("fields", "email,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unsupported field: password"));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void findAllByBirthDateBetween_shouldReturnBadRequest_negativePageSize() throws Exception {
+        mockMvc.perform(get(baseUrl + "/search/birthDate/between")
+                        .param("from", "1990-10-02")
+                        .param("to", "2000-11-03")
+                        .param("size", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Page size must be between 1 and 1000"));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void findAllByBirthDateBetween_shouldReturnBadRequest_negativePage() throws Exception {
+        mockMvc.perform(get(baseUrl + "/search/birthDate/between")
+                        .param("from", "1990-10-02")
+                        .param("to", "2000-11-03")
+                        .param("page", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Page number must not be negative"));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void findAllByBirthDateBetweenAfter_shouldReturnBadRequest_emptyPageSize() throws Exception {
+        mockMvc.perform(get(baseUrl + "/search/birthDate/between")
+                        .param("from", "1990-10-02")
+                        .param("to", "2000-11-03")
+                        .param("size", "0")
+                        .param("cursor", ""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Page size must be between 1 and 1000"));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void findAllByBirthDateBetweenAfter_shouldReturnFirstSliceWithNextCursor() throws Exception {
+        LocalDate from = LocalDate.parse("1990-10-02");
+        LocalDate to = LocalDate.parse("2000-11-03");
+        User first = getDefaultUser();
+        first.setId(UUID.randomUUID());
+        User last = getDefaultUser();
+        last.setId(UUID.randomUUID());
+        List<UserView> users = List.of(view(first), view(last));
+        when(userService.findAllByBirthDateBetween(from, to, EnumSet.allOf(UserField.class), null, 2))
+                .thenReturn(new SliceImpl<>(users, PageRequest.ofSize(2), true));
+        String next = BirthDateCursor.after(users.get(1)).encode();
+
+        mockMvc.perform(get(baseUrl + "/search/birthDate/between")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("size", "2")
+                        .param("cursor", ""))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(new Dto<>(new CursorPage<>(users, next)))));
+
+        verify(userService, never()).findAllByBirthDateBetween(any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    void findAllByBirthDateBetweenAfter_shouldDecodeCursor() throws Exception {
+        LocalDate from = LocalDate.parse("1990-10-02");
+        LocalDate to = LocalDate.parse("2000-11-03");
+        BirthDateCursor cursor = new BirthDateCursor(LocalDate.parse("1995-05-05"), UUID.randomUUID());
+        when(userService.findAllByBirthDateBetween(from, to, EnumSet.allOf(UserField.class), cursor, 10))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(10), false));
+
+        mockMvc.perform(get(baseUrl + "/search/birthDate/between")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("cursor", cursor.encode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content").isEmpty())
+                .andExpect(jsonPath("$.data.next").doesNotExist());
+    }
+
+    @Test
+    void search_shouldReturnRankedHitsWithNextCursor() throws Exception {
+        User first = getDefaultUser();
+        first.setId(UUID.randomUUID());
+        User last = getDefaultUser();
+        last.setId(UUID.randomUUID());
+        List<SearchHit> hits = List.of(
+                new SearchHit(first, SearchMatch.LAST_NAME, "heras", "heraskin"),
+                new SearchHit(last, SearchMatch.FIRST_NAME, "heras", "herasym")
+        );
+        when(userService.search("heras", null, 2)).thenReturn(new SliceImpl<>(hits, PageRequest.ofSize(2), true));
+        String next = SearchCursor.after(hits.get(1)).encode("heras");
+
+        mockMvc.perform(get(baseUrl + "/search")
+                        .param("q", "heras")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(new Dto<>(new CursorPage<>(hits, next)))))
+                .andExpect(jsonPath("$.data.content[0].match").value("LAST_NAME"))
+                .andExpect(jsonPath("$.data.content[0].key").doesNotExist());
+    }
+
+    @Test
+    void search_shouldDecodeCursor() throws Exception {
+        SearchCursor cursor = new SearchCursor("heras|", SearchMatch.FIRST_NAME, "heras|ym", UUID.randomUUID());
+        when(userService.search("heras", cursor, 10))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(10), false));
+
+        mockMvc.perform(get(baseUrl + "/search")
+                        .param("q", "heras")
+                        .param("cursor", cursor.encode("heras")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content").isEmpty())
+                .andExpect(jsonPath("$.data.next").doesNotExist());
+    }
+
+    @Test
+    void search_shouldReturnBadRequest_cursorOfAnotherQuery() throws Exception {
+        SearchCursor cursor = new SearchCursor("heras", SearchMatch.LAST_NAME, "heraskin", UUID.randomUUID());
+
+        mockMvc.perform(get(baseUrl + "/search")
+                        .param("q", "andrii")
+                        .param("cursor", cursor.encode("heras")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void search_shouldReturnBadRequest_cursorWithEmptyTerm() throws Exception {
+        SearchCursor cursor = new SearchCursor("", SearchMatch.LAST_NAME, "heraskin", UUID.randomUUID());
+
+        mockMvc.perform(get(baseUrl + "/search")
+                        .param("q", "heras")
+                        .param("cursor", cursor.encode("heras")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void search_shouldReturnBadRequest_shortQuery() throws Exception {
+        when(userService.search("ab", null, 10)).thenThrow(new InvalidSearchQueryException(3));
+
+        mockMvc.perform(get(baseUrl + "/search")
+                        .param("q", "ab"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Search query must have at least 3 characters"));
+    }
+
+    @Test
+    void search_shouldReturnBadRequest_pageSizeAboveMaximum() throws Exception {
+        mockMvc.perform(get(baseUrl + "/search")
+                        .param("q", "andrii")
+                        .param("size", "1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Page size must be between 1 and 1000"));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void findAllByBirthDateBetweenAfter_shouldReturnBadRequest_invalidCursor() throws Exception {
+        mockMvc.perform(get(baseUrl + "/search/birthDate/between")
+                        .param("from", "1990-10-02")
+                        .param("to", "2000-11-03")
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+
+    @Test
+    void export_shouldStreamInRequestedFormat() throws Exception {
+        mockMvc.perform(get(baseUrl + "/export")
+                        .param("from", "1990-10-02")
+                        .param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"));
+
+        verify(userService).exportByBirthDateBetween(eq(LocalDate.of(1990, 10, 2)), isNull(),
+                eq(UserExportFormat.CSV), any());
+    }
+
+    @Test
+    void export_shouldReturnBadRequest_unsupportedFormat() throws Exception {
+        mockMvc.perform(get(baseUrl + "/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unsupported export format: xml"));
+
+        verifyNoInteractions(userService);
     }
 
     private MultiValueMap<String, String> getParams() {
@@ -176,12 +624,37 @@ class UserControllerTest {
         testSave_shouldReturnBadRequest_noBody(post(baseUrl));
     }
 
+    @Test
+    void importUsers_shouldReturnPerRecordResults() throws Exception {
+        BulkImportResult result = new BulkImportResult(1, 1, List.of(
+                RecordResult.imported(0, UUID.randomUUID()),
+                RecordResult.failed(1, "You are underage")
+        ));
+        when(userImportService.importUsers(any())).thenReturn(result);
+
+        mockMvc.perform(post(baseUrl + "/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(getDefaultUser())))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(new Dto<>(result))));
+    }
+
+    @Test
+    void importUsers_shouldReturnUnsupportedMediaType() throws Exception {
+        mockMvc.perform(post(baseUrl + "/bulk")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("user"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verify(userImportService, never()).importUsers(any());
+    }
+
     @Test
     void update_shouldReturnDtoUser() throws Exception {
         User userToSave = getDefaultUser();
         UUID id = UUID.randomUUID();
         userToSave.setId(id);
-        when(userService.save(any(User.class))).thenReturn(userToSave);
+        when(userService.update(any(User.class), isNull())).thenReturn(userToSave);
 
         mockMvc.perform(put(baseUrl)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -223,7 +696,7 @@ class UserControllerTest {
         String newEmail = "newemail@mail.com";
         Map<String, Object> fields = Map.of("email", newEmail);
         UUID id = UUID.randomUUID();
-        when(userService.partialUpdate(id.toString(), fields)).thenReturn(foundedUser);
+        when(userService.partialUpdate(id.toString(), fields, null)).thenReturn(foundedUser);
         foundedUser.setEmail(newEmail);
         mockMvc.perform(patch(baseUrl + "/" + id)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -232,6 +705,33 @@ class UserControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(new Dto<>(foundedUser))));
     }
 
+    @Test
+    void partialUpdate_shouldReturnPreconditionFailed_staleIfMatch() throws Exception {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> fields = Map.of("address", "Khreshchatyk 1");
+        when(userService.partialUpdate(id.toString(), fields, Set.of(1L))).thenThrow(new PreconditionFailedException());
+
+        mockMvc.perform(patch(baseUrl + "/" + id)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(fields)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value("User has been modified since it was read"));
+    }
+
+    @Test
+    void partialUpdate_shouldReturnBadRequest_invalidField() throws Exception {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> fields = Map.of("birthDate", "not a date");
+        when(userService.partialUpdate(id.toString(), fields, null)).thenThrow(new InvalidFieldException("birthDate"));
+
+        mockMvc.perform(patch(baseUrl + "/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(fields)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid value of field 'birthDate'"));
+    }
+
     @Test
     void partialUpdate_shouldReturnBadRequest_noBody() throws Exception {
         UUID id = UUID.randomUUID();
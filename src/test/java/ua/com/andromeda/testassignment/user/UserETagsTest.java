@@ -0,0 +1,27 @@
+package ua.com.andromeda.testassignment.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserETagsTest {
+
+    @Test
+    void parseIfMatch_shouldReturnNull_missingOrWildcard() {
+        assertNull(UserETags.parseIfMatch(null));
+        assertNull(UserETags.parseIfMatch(" * "));
+    }
+
+    @Test
+    void parseIfMatch_shouldReadStrongTagsOnly() {
+        assertEquals(Set.of(1L, 4L), UserETags.parseIfMatch("\"1\", W/\"2\", \"x\", \"4\""));
+    }
+
+    @Test
+    void of_shouldQuoteVersion() {
+        assertEquals("\"7\"", UserETags.of(7));
+    }
+}
@@ -0,0 +1,54 @@
+package ua.com.andromeda.testassignment.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// the whole context, so the errors go through the exception resolvers Spring Data REST adds, which the
+// UserControllerTest slice does not have
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserErrorResponseTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void findById_shouldReturnErrorResponse_invalidUUID() throws Exception {
+        mockMvc.perform(get("/users/not-a-uuid"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value("Invalid UUID"))
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.timestamp").isNotEmpty());
+    }
+
+    @Test
+    void findById_shouldReturnErrorResponse_notFound() throws Exception {
+        UUID id = UUID.randomUUID();
+
+        mockMvc.perform(get("/users/" + id))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value("User with id='" + id + "' not found"))
+                .andExpect(jsonPath("$.status").value(404));
+    }
+
+    @Test
+    void findAllByBirthDateBetween_shouldReturnNotAcceptable_malformedAccept() throws Exception {
+        mockMvc.perform(get("/users/search/birthDate/between")
+                        .param("from", "1990-01-01")
+                        .param("to", "1999-12-31")
+                        .header(HttpHeaders.ACCEPT, "application/json;q=x"))
+                .andExpect(status().isNotAcceptable());
+    }
+}
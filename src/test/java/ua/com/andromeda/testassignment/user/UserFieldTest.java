@@ -0,0 +1,27 @@
+package ua.com.andromeda.testassignment.user;
+
+import org.junit.jupiter.api.Test;
+import ua.com.andromeda.testassignment.exception.UnsupportedFieldException;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserFieldTest {
+
+    @Test
+    void parse_shouldSelectEveryField_blank() {
+        assertEquals(EnumSet.allOf(UserField.class), UserField.parse(" "));
+    }
+
+    @Test
+    void parse_shouldAlwaysSelectIdAndBirthDate() {
+        assertEquals(EnumSet.of(UserField.ID, UserField.BIRTH_DATE, UserField.FIRST_NAME, UserField.PHONE_NUMBER_E164),
+                UserField.parse("firstName, phoneNumberE164"));
+    }
+
+    @Test
+    void parse_shouldThrowUnsupportedFieldException_unknownProperty() {
+        assertThrows(UnsupportedFieldException.class, () -> UserField.parse("email,first_name"));
+    }
+}
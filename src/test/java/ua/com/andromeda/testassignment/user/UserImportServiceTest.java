@@ -0,0 +1,164 @@
+package ua.com.andromeda.testassignment.user;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.com.andromeda.testassignment.config.ReadYourWrites;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.BulkImportResult;
+import ua.com.andromeda.testassignment.validation.PhoneNumberNormalizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static ua.com.andromeda.testassignment.TestFixtures.userProperties;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+    private static final String VALID_USER = "{\"email\":\"andromeda@gmail.com\",\"firstName\":\"Andrii\"," +
+            "\"lastName\":\"Heraskin\",\"birthDate\":\"2000-01-01\",\"phoneNumber\":\"+380678955568\"}";
+
+    @Mock
+    Validator validator;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    TransactionTemplate transactionTemplate;
+
+    UserImportService target;
+
+    @BeforeEach
+    void setUp() {
+        UserProperties userProperties = userProperties(Map.of("user.bulk-import.batch-size", "2"));
+        target = new UserImportService(
+                Jackson2ObjectMapperBuilder.json().build(),
+                validator,
+                entityManager,
+                transactionTemplate,
+                new PhoneNumberNormalizer(userProperties),
+                userProperties,
+                new ReadYourWrites(userProperties)
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactions() {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importUsers_success_ndjsonInBatches() {
+        runTransactions();
+        doAnswer(invocation -> {
+            invocation.getArgument(0, User.class).setId(UUID.randomUUID());
+            return null;
+        }).when(entityManager).persist(any(User.class));
+
+        BulkImportResult actual = target.importUsers(stream(VALID_USER + "\n" + VALID_USER + "\n" + VALID_USER));
+
+        assertEquals(3, actual.imported());
+        assertEquals(0, actual.failed());
+        actual.results().forEach(result -> assertNotNull(result.id()));
+        verify(entityManager, times(3)).persist(any(User.class));
+        verify(entityManager, times(2)).flush();
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+    }
+
+    @Test
+    void importUsers_success_jsonArray() {
+        runTransactions();
+
+        BulkImportResult actual = target.importUsers(stream("[" + VALID_USER + "," + VALID_USER + "]"));
+
+        assertEquals(2, actual.imported());
+        verify(entityManager, times(2)).persist(any(User.class));
+    }
+
+    @Test
+    void importUsers_shouldStoreE164PhoneNumber() {
+        runTransactions();
+
+        target.importUsers(stream(VALID_USER.replace("+380678955568", "+380 (67) 895-55-68")));
+
+        verify(entityManager).persist(argThat((User user) -> "+380678955568".equals(user.getPhoneNumberE164())));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importUsers_shouldReportInvalidRecordsAndContinue() {
+        runTransactions();
+        ConstraintViolation<User> violation = mock(ConstraintViolation.class);
+        when(violation.getMessage()).thenReturn("You are underage");
+        when(validator.validate(any(User.class)))
+                .thenReturn(Set.of())
+                .thenReturn(Set.of(violation))
+                .thenReturn(Set.of());
+        String malformed = VALID_USER.replace("2000-01-01", "not a date");
+
+        BulkImportResult actual = target.importUsers(stream(
+                String.join("\n", VALID_USER, VALID_USER, malformed, VALID_USER)
+        ));
+
+        assertEquals(2, actual.imported());
+        assertEquals(2, actual.failed());
+        assertNull(actual.results().get(0).error());
+        assertEquals("You are underage", actual.results().get(1).error());
+        assertEquals("Malformed user", actual.results().get(2).error());
+        assertNull(actual.results().get(3).error());
+    }
+
+    @Test
+    void importUsers_shouldStopAtMalformedJson() {
+        runTransactions();
+
+        BulkImportResult actual = target.importUsers(stream(VALID_USER + "\n{\"email\": oops"));
+
+        assertEquals(1, actual.imported());
+        assertEquals(1, actual.failed());
+        assertEquals("Malformed JSON", actual.results().get(1).error());
+    }
+
+    @Test
+    void importUsers_shouldRetryFailedBatchOneByOne() {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("batch failed");
+        }).doAnswer(invocation -> {
+            throw new IllegalStateException("user failed");
+        }).doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        BulkImportResult actual = target.importUsers(stream(VALID_USER + "\n" + VALID_USER));
+
+        assertEquals(1, actual.imported());
+        assertEquals(1, actual.failed());
+        assertEquals("Failed to save user", actual.results().get(0).error());
+        assertNull(actual.results().get(1).error());
+    }
+}
@@ -0,0 +1,186 @@
+package ua.com.andromeda.testassignment.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserOutboxRelayTest {
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserOutboxRelay userOutboxRelay;
+
+    @Autowired
+    RecordingSink recordingSink;
+
+    @Autowired
+    FailingSink failingSink;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void relay_shouldDeliverEveryChangeOnceInOrder() throws InterruptedException {
+        User user = new User();
+        user.setFirstName("Andrii");
+        user.setLastName("Heraskin");
+        user.setEmail("outbox@gmail.com");
+        user.setBirthDate(LocalDate.of(1990, 1, 1));
+        UUID id = userRepository.save(user).getId();
+        userRepository.updateFields(id, Map.of("firstName", "Taras"), null);
+        userRepository.deleteById(id);
+
+        List<UserEvent> events = eventsOf(id, 3);
+
+        assertEquals(List.of(UserEventType.CREATED, UserEventType.UPDATED, UserEventType.DELETED),
+                events.stream().map(UserEvent::type).toList());
+        assertTrue(events.get(0).offset() < events.get(1).offset());
+        assertTrue(events.get(1).offset() < events.get(2).offset());
+        assertTrue(events.get(1).payload().contains("\"firstName\": \"Taras\""));
+        assertNull(events.get(2).payload());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM user_outbox WHERE user_id = ?",
+                Integer.class, id));
+    }
+
+    @Test
+    void relay_shouldGiveConsecutiveOffsets() throws InterruptedException {
+        User user = new User();
+        user.setFirstName("Andrii");
+        user.setLastName("Heraskin");
+        user.setEmail("outbox-offsets@gmail.com");
+        user.setBirthDate(LocalDate.of(1990, 1, 1));
+        UUID id = userRepository.save(user).getId();
+        userRepository.deleteById(id);
+        eventsOf(id, 2);
+
+        List<Long> offsets = recordingSink.events.stream().map(UserEvent::offset).toList();
+        for (int i = 1; i < offsets.size(); i++) {
+            assertEquals(offsets.get(i - 1) + 1, offsets.get(i));
+        }
+    }
+
+    @Test
+    void relay_shouldRedeliverFailedBatchWithSameOffsets_changeCommittedLate() throws Exception {
+        UUID lateId = UUID.randomUUID();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        // takes its outbox id first but commits only after the batch failed
+        CompletableFuture<Void> late = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                status -> {
+                    insertUser(lateId, "outbox-late@gmail.com");
+                    inserted.countDown();
+                    try {
+                        commit.await();
+                    } catch (InterruptedException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }));
+        assertTrue(inserted.await(10, TimeUnit.SECONDS));
+        UUID id = UUID.randomUUID();
+        failingSink.failFor.set(id);
+        // committed together, so both are in the batch that fails
+        transactionTemplate.executeWithoutResult(status -> {
+            insertUser(id, "outbox-redelivery@gmail.com");
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+        });
+        // published once before the failing sink threw
+        eventsOf(id, 2);
+        assertNull(failingSink.failFor.get());
+
+        commit.countDown();
+        late.get(10, TimeUnit.SECONDS);
+        UserEvent lateEvent = eventsOf(lateId, 1).get(0);
+        List<UserEvent> events = eventsOf(id, 4);
+
+        assertEquals(events.subList(0, 2), events.subList(2, 4));
+        assertEquals(events.get(0).offset() + 1, events.get(1).offset());
+        assertTrue(lateEvent.offset() > events.get(1).offset());
+    }
+
+    private void insertUser(UUID id, String email) {
+        jdbcTemplate.update("INSERT INTO users (id, email, first_name, last_name, birth_date) VALUES (?, ?, ?, ?, ?)",
+                id, email, "Andrii", "Heraskin", LocalDate.of(1990, 1, 1));
+    }
+
+    // a relay still running from the start of the context holds the lock until it is done; a failing sink makes
+    // relay throw, and the batch is delivered again by the next attempt
+    private List<UserEvent> eventsOf(UUID id, int expected) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try {
+                userOutboxRelay.relay();
+            } catch (FailingSink.Failure ignored) {
+            }
+            List<UserEvent> events = recordingSink.events.stream().filter(event -> event.userId().equals(id)).toList();
+            if (events.size() >= expected) {
+                return events;
+            }
+            Thread.sleep(100);
+        }
+        fail("Events of " + id + " were not delivered");
+        return List.of();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        @Order(1)
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+
+        // after the recording sink, so a failure comes after a batch was published
+        @Bean
+        @Order(2)
+        FailingSink failingSink() {
+            return new FailingSink();
+        }
+    }
+
+    static class RecordingSink implements UserEventSink {
+        final List<UserEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(List<UserEvent> events) {
+            this.events.addAll(events);
+        }
+    }
+
+    // fails the first batch with an event of failFor
+    static class FailingSink implements UserEventSink {
+        final AtomicReference<UUID> failFor = new AtomicReference<>();
+
+        @Override
+        public void publish(List<UserEvent> events) {
+            UUID id = failFor.get();
+            if (events.stream().anyMatch(event -> event.userId().equals(id)) && failFor.compareAndSet(id, null)) {
+                throw new Failure();
+            }
+        }
+
+        static class Failure extends RuntimeException {
+        }
+    }
+}
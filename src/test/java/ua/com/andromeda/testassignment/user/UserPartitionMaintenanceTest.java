@@ -0,0 +1,87 @@
+package ua.com.andromeda.testassignment.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserPartitionMaintenanceTest {
+    @Autowired
+    UserPartitionRepository userPartitionRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    // rolled back, so the partitions created here are gone afterwards
+    @Test
+    @Transactional
+    void createPartitions_shouldMoveRowsOfNewDecadeOutOfDefaultPartition() {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, first_name, last_name, birth_date) VALUES (?, ?, ?, ?, ?)",
+                id, "partition@gmail.com", "Andrii", "Heraskin", LocalDate.of(2095, 6, 1));
+        assertEquals("users_default", partitionOf(id));
+
+        List<String> created = userPartitionRepository.createPartitions(LocalDate.of(2095, 6, 1));
+
+        assertEquals("users_2090s", created.get(created.size() - 1));
+        assertEquals("users_2090s", partitionOf(id));
+        assertTrue(userPartitionRepository.createPartitions(LocalDate.of(2095, 6, 1)).isEmpty());
+        // the move is no change of the user, and deleting it afterwards is still one
+        assertEquals(List.of("CREATED"), outboxEventsOf(id));
+        assertTrue(isIdTaken(id));
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+        assertEquals(List.of("CREATED", "DELETED"), outboxEventsOf(id));
+        assertFalse(isIdTaken(id));
+    }
+
+    // the primary key includes birth_date, so user_ids is what keeps ids unique across partitions
+    @Test
+    @Transactional
+    void insert_shouldRejectTakenId_evenAfterMoveToAnotherPartition() {
+        UUID id = UUID.randomUUID();
+        insertUser(id, LocalDate.of(1990, 6, 1));
+        jdbcTemplate.update("UPDATE users SET birth_date = ? WHERE id = ?", LocalDate.of(2005, 6, 1), id);
+        assertEquals("users_2000s", partitionOf(id));
+        assertTrue(isIdTaken(id));
+
+        assertThrows(DuplicateKeyException.class, () -> insertUser(id, LocalDate.of(1990, 6, 1)));
+    }
+
+    private void insertUser(UUID id, LocalDate birthDate) {
+        jdbcTemplate.update("INSERT INTO users (id, email, first_name, last_name, birth_date) VALUES (?, ?, ?, ?, ?)",
+                id, "partition@gmail.com", "Andrii", "Heraskin", birthDate);
+    }
+
+    private boolean isIdTaken(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT exists (SELECT 1 FROM user_ids WHERE id = ?)", Boolean.class, id);
+    }
+
+    @Test
+    void birthDateRange_shouldOnlyScanPartitionsOfItsDecades() {
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN SELECT * FROM users WHERE birth_date BETWEEN ? AND ? ORDER BY birth_date, id LIMIT 20",
+                String.class, LocalDate.of(1985, 1, 1), LocalDate.of(1994, 12, 31)));
+
+        assertTrue(plan.contains("users_1980s"), plan);
+        assertTrue(plan.contains("users_1990s"), plan);
+        assertFalse(plan.contains("users_1970s"), plan);
+        assertFalse(plan.contains("users_default"), plan);
+    }
+
+    private List<String> outboxEventsOf(UUID id) {
+        return jdbcTemplate.queryForList("SELECT type FROM user_outbox WHERE user_id = ? ORDER BY id", String.class, id);
+    }
+
+    private String partitionOf(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM users WHERE id = ?", String.class, id);
+    }
+}
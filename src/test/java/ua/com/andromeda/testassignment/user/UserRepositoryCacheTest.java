@@ -0,0 +1,274 @@
+package ua.com.andromeda.testassignment.user;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.com.andromeda.testassignment.config.CacheConfig;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserRepositoryCacheTest {
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    UserResponseCache userResponseCache;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Value("${spring.datasource.url}")
+    String url;
+
+    @Value("${spring.datasource.username}")
+    String username;
+
+    @Value("${spring.datasource.password}")
+    String password;
+
+    Cache cache;
+    User user;
+
+    @BeforeEach
+    void setUp() {
+        cache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        cache.clear();
+        user = new User();
+        user.setFirstName("Andrii");
+        user.setLastName("Heraskin");
+        user.setEmail("andromeda@gmail.com");
+        user.setBirthDate(LocalDate.of(1990, 1, 1));
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void findCachedById_shouldServeRepeatedLookupsFromCache() {
+        User first = userRepository.findCachedById(user.getId()).orElseThrow();
+        User second = userRepository.findCachedById(user.getId()).orElseThrow();
+
+        assertSame(first, second);
+        assertNotNull(cache.get(user.getId()));
+    }
+
+    @Test
+    void findCachedById_shouldCacheMissingUser() {
+        UUID missingId = UUID.randomUUID();
+
+        assertEquals(Optional.empty(), userRepository.findCachedById(missingId));
+
+        Cache.ValueWrapper cached = cache.get(missingId);
+        assertNotNull(cached);
+        assertNull(cached.get());
+    }
+
+    @Test
+    void save_shouldEvictCachedUser() {
+        userRepository.findCachedById(user.getId());
+        user.setFirstName("Taras");
+
+        userRepository.save(user);
+
+        assertNull(cache.get(user.getId()));
+        assertEquals("Taras", userRepository.findCachedById(user.getId()).orElseThrow().getFirstName());
+    }
+
+    @Test
+    void updateFields_shouldReturnUpdatedRowAndEvictCachedUser() {
+        userRepository.findCachedById(user.getId());
+
+        User updated = userRepository.updateFields(user.getId(), Map.of("firstName", "Taras"), null)
+                .orElseThrow();
+
+        assertEquals("Taras", updated.getFirstName());
+        assertEquals(user.getVersion() + 1, updated.getVersion());
+        assertEquals(user.getBirthDate(), updated.getBirthDate());
+        assertNull(cache.get(user.getId()));
+        assertEquals("Taras", userRepository.findCachedById(user.getId()).orElseThrow().getFirstName());
+    }
+
+    // like UserService.partialUpdate; the other request still reads the committed row, and must not cache it for
+    // longer than the transaction takes to commit
+    @Test
+    void updateFields_shouldNotLetReadBeforeCommitRecacheOldUser() {
+        userRepository.findCachedById(user.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.updateFields(user.getId(), Map.of("firstName", "Taras"), null);
+            CompletableFuture.runAsync(() -> userRepository.findCachedById(user.getId())).join();
+        });
+
+        assertEquals("Taras", userRepository.findCachedById(user.getId()).orElseThrow().getFirstName());
+    }
+
+    // like UserService.update
+    @Test
+    void save_shouldNotLetReadBeforeCommitRecacheOldUser() {
+        userRepository.findCachedById(user.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User changed = userRepository.findById(user.getId()).orElseThrow();
+            changed.setFirstName("Taras");
+            userRepository.save(changed);
+            CompletableFuture.runAsync(() -> userRepository.findCachedById(user.getId())).join();
+        });
+
+        assertEquals("Taras", userRepository.findCachedById(user.getId()).orElseThrow().getFirstName());
+    }
+
+    @Test
+    void updateFields_shouldNotUpdate_versionMismatch() {
+        Map<String, Object> values = Map.of("firstName", "Taras");
+
+        assertEquals(Optional.empty(), userRepository.updateFields(user.getId(), values, Set.of(user.getVersion() + 1)));
+        assertEquals("Andrii", userRepository.findById(user.getId()).orElseThrow().getFirstName());
+        assertEquals(Optional.of(user.getVersion()), userRepository.findVersionById(user.getId()));
+    }
+
+    @Test
+    void findAllCachedById_shouldQueryUncachedIdsAndCacheThem() {
+        UUID missingId = UUID.randomUUID();
+
+        Map<UUID, User> users = userRepository.findAllCachedById(List.of(user.getId(), missingId));
+
+        assertEquals(Set.of(user.getId()), users.keySet());
+        assertEquals("Andrii", users.get(user.getId()).getFirstName());
+        assertSame(users.get(user.getId()), userRepository.findCachedById(user.getId()).orElseThrow());
+        assertNull(cache.get(missingId).get());
+    }
+
+    @Test
+    void findAllCachedById_shouldServeCachedUsers() {
+        User cached = userRepository.findCachedById(user.getId()).orElseThrow();
+
+        assertSame(cached, userRepository.findAllCachedById(List.of(user.getId())).get(user.getId()));
+    }
+
+    @Test
+    void searchByPrefix_shouldFindUsersAndSeekPastCursor() {
+        user.setLastName("Zghurovskyi");
+        user = userRepository.save(user);
+
+        List<SearchHit> hits = userRepository.searchByPrefix(SearchCursor.first("zghurovsk", SearchMatch.LAST_NAME), 10);
+
+        assertEquals(List.of(user.getId()), hits.stream().map(hit -> hit.user().getId()).toList());
+        assertEquals("zghurovskyi", hits.get(0).key());
+        assertTrue(userRepository.searchByPrefix(SearchCursor.after(hits.get(0)), 10).isEmpty());
+    }
+
+    @Test
+    void searchByPrefix_shouldSkipUsersFoundByEarlierMatch() {
+        user.setFirstName("Zghurovskyi");
+        user.setLastName("Zghurovskyi");
+        user = userRepository.save(user);
+
+        assertTrue(userRepository.searchByPrefix(SearchCursor.first("zghurovsk", SearchMatch.FIRST_NAME), 10).isEmpty());
+    }
+
+    @Test
+    void findClosestSearchTerm_shouldCorrectTypoToSavedName() {
+        user.setLastName("Zghurovskyi");
+        userRepository.save(user);
+
+        assertEquals(Optional.of("zghurovskyi"), userRepository.findClosestSearchTerm("zgurovskyi"));
+    }
+
+    @Test
+    void findViewsByBirthDateBetweenAfter_shouldReadRequestedFieldsOnly() {
+        LocalDate birthDate = user.getBirthDate();
+
+        List<UserView> views = userRepository.findViewsByBirthDateBetweenAfter(birthDate, birthDate,
+                BirthDateCursor.before(birthDate), UserField.parse("email"), 1000).getContent();
+
+        UserView view = views.stream().filter(found -> found.id().equals(user.getId())).findFirst().orElseThrow();
+        assertEquals(Map.of("id", user.getId(), "birthDate", birthDate, "email", user.getEmail()), view.fields());
+    }
+
+    @Test
+    void deleteById_shouldEvictCachedUser() {
+        userRepository.findCachedById(user.getId());
+
+        userRepository.deleteById(user.getId());
+
+        assertNull(cache.get(user.getId()));
+        assertEquals(Optional.empty(), userRepository.findCachedById(user.getId()));
+    }
+
+    @Test
+    void writes_shouldEvictCachedResponsesOfUserAndAllPages() throws Exception {
+        cacheResponses();
+        userRepository.updateFields(user.getId(), Map.of("firstName", "Taras"), null);
+        assertFalse(isCached(CacheConfig.USER_RESPONSES_CACHE, user.getId()));
+        assertFalse(isCached(CacheConfig.USER_PAGE_RESPONSES_CACHE, "page"));
+
+        cacheResponses();
+        user = userRepository.save(userRepository.findById(user.getId()).orElseThrow());
+        assertFalse(isCached(CacheConfig.USER_RESPONSES_CACHE, user.getId()));
+        assertFalse(isCached(CacheConfig.USER_PAGE_RESPONSES_CACHE, "page"));
+
+        cacheResponses();
+        userRepository.deleteById(user.getId());
+        assertFalse(isCached(CacheConfig.USER_RESPONSES_CACHE, user.getId()));
+        assertFalse(isCached(CacheConfig.USER_PAGE_RESPONSES_CACHE, "page"));
+    }
+
+    // ReactiveUserRepository on the same database and caches, as the reactive profile runs it
+    @Test
+    void reactiveDeleteById_shouldEvictCachedUserAndResponses() throws Exception {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url.replaceFirst("^jdbc:", "r2dbc:"))
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        ReactiveUserRepository reactiveUserRepository =
+                new ReactiveUserRepository(DatabaseClient.create(ConnectionFactories.get(options)), cacheManager);
+        assertNotNull(reactiveUserRepository.findCachedById(user.getId()).block());
+        cacheResponses();
+
+        reactiveUserRepository.deleteById(user.getId()).block();
+
+        assertNull(reactiveUserRepository.findCachedById(user.getId()).block());
+        assertFalse(isCached(CacheConfig.USER_RESPONSES_CACHE, user.getId()));
+        assertFalse(isCached(CacheConfig.USER_PAGE_RESPONSES_CACHE, "page"));
+    }
+
+    void cacheResponses() throws Exception {
+        userResponseCache.put(CacheConfig.USER_RESPONSES_CACHE, user.getId(), null, user,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        userResponseCache.put(CacheConfig.USER_PAGE_RESPONSES_CACHE, "page", null, List.of(user),
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertTrue(isCached(CacheConfig.USER_RESPONSES_CACHE, user.getId()));
+        assertTrue(isCached(CacheConfig.USER_PAGE_RESPONSES_CACHE, "page"));
+    }
+
+    boolean isCached(String cacheName, Object key) throws Exception {
+        return userResponseCache.write(cacheName, key, new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,177 @@
+package ua.com.andromeda.testassignment.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ua.com.andromeda.testassignment.config.CacheConfig;
+import ua.com.andromeda.testassignment.config.ReadYourWrites;
+import ua.com.andromeda.testassignment.config.UserProperties;
+import ua.com.andromeda.testassignment.dto.Dto;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ua.com.andromeda.testassignment.TestFixtures.userProperties;
+
+class UserResponseCacheTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    UserResponseCache newCache(boolean offHeap) {
+        UserProperties userProperties = userProperties(Map.of(
+                "user.response-cache.max-size", "1MB",
+                "user.response-cache.compression-min-size", "2KB",
+                "user.response-cache.off-heap", Boolean.toString(offHeap)));
+        return new UserResponseCache(objectMapper, userProperties, new ReadYourWrites(userProperties));
+    }
+
+    User user(int i) {
+        User user = new User();
+        user.setId(UUID.nameUUIDFromBytes(("user-" + i).getBytes()));
+        user.setFirstName("Andrii");
+        user.setLastName("Heraskin");
+        user.setEmail("user" + i + "@gmail.com");
+        user.setBirthDate(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+
+    Dto<List<User>> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(user(i));
+        }
+        return new Dto<>(users);
+    }
+
+    @Test
+    void write_shouldServeWhatPutSerialized() throws Exception {
+        UserResponseCache cache = newCache(false);
+        Dto<User> body = new Dto<>(user(0));
+        MockHttpServletResponse first = new MockHttpServletResponse();
+
+        assertFalse(cache.write(CacheConfig.USER_RESPONSES_CACHE, body.data().getId(), new MockHttpServletRequest(),
+                first));
+        assertTrue(cache.put(CacheConfig.USER_RESPONSES_CACHE, body.data().getId(), "\"0\"", body,
+                new MockHttpServletRequest(), first));
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        assertTrue(cache.write(CacheConfig.USER_RESPONSES_CACHE, body.data().getId(), new MockHttpServletRequest(),
+                second));
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(body), second.getContentAsByteArray());
+        assertEquals("application/json", second.getContentType());
+        assertEquals("\"0\"", second.getHeader(HttpHeaders.ETAG));
+        assertNull(second.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void write_shouldServeLargeBodiesGzipped_whenAccepted() throws Exception {
+        UserResponseCache cache = newCache(false);
+        Dto<List<User>> body = users(100);
+        cache.put(CacheConfig.USER_PAGE_RESPONSES_CACHE, "key", null, body, new MockHttpServletRequest(),
+                new MockHttpServletResponse());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(cache.write(CacheConfig.USER_PAGE_RESPONSES_CACHE, "key", request, response));
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        byte[] json = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes();
+        assertArrayEquals(objectMapper.writeValueAsBytes(body), json);
+    }
+
+    @Test
+    void write_shouldInflateGzippedBodies_whenGzipIsNotAccepted() throws Exception {
+        UserResponseCache cache = newCache(true);
+        Dto<List<User>> body = users(100);
+        cache.put(CacheConfig.USER_PAGE_RESPONSES_CACHE, "key", null, body, new MockHttpServletRequest(),
+                new MockHttpServletResponse());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(cache.write(CacheConfig.USER_PAGE_RESPONSES_CACHE, "key", request, response));
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(objectMapper.writeValueAsBytes(body), response.getContentAsByteArray());
+    }
+
+    @Test
+    void write_shouldServeOffHeapEntries() throws Exception {
+        UserResponseCache cache = newCache(true);
+        Dto<User> body = new Dto<>(user(0));
+        cache.put(CacheConfig.USER_RESPONSES_CACHE, "key", null, body, new MockHttpServletRequest(),
+                new MockHttpServletResponse());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(cache.write(CacheConfig.USER_RESPONSES_CACHE, "key", new MockHttpServletRequest(), response));
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(body), response.getContentAsByteArray());
+    }
+
+    @Test
+    void putAndWrite_shouldSkipRequestsForOtherFormats() throws Exception {
+        UserResponseCache cache = newCache(false);
+        Dto<User> body = new Dto<>(user(0));
+        MockHttpServletRequest cbor = new MockHttpServletRequest();
+        cbor.addHeader(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor");
+
+        assertFalse(cache.put(CacheConfig.USER_RESPONSES_CACHE, "key", null, body, cbor,
+                new MockHttpServletResponse()));
+        assertFalse(cache.write(CacheConfig.USER_RESPONSES_CACHE, "key", new MockHttpServletRequest(),
+                new MockHttpServletResponse()));
+
+        cache.put(CacheConfig.USER_RESPONSES_CACHE, "key", null, body, new MockHttpServletRequest(),
+                new MockHttpServletResponse());
+        assertFalse(cache.write(CacheConfig.USER_RESPONSES_CACHE, "key", cbor, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void put_shouldSkipOnlyUsersWrittenWithinReadYourWritesWindow() throws Exception {
+        UserProperties userProperties = userProperties(Map.of(
+                "user.replicas.urls", "jdbc:postgresql://replica:5432/postgres",
+                "user.replicas.read-your-writes-window", "PT1M"));
+        ReadYourWrites readYourWrites = new ReadYourWrites(userProperties);
+        UserResponseCache cache = new UserResponseCache(objectMapper, userProperties, readYourWrites);
+        User written = user(0);
+        User other = user(1);
+        readYourWrites.written(written.getId());
+
+        cache.put(CacheConfig.USER_RESPONSES_CACHE, written.getId(), null, new Dto<>(written),
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        cache.put(CacheConfig.USER_RESPONSES_CACHE, other.getId(), null, new Dto<>(other),
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        cache.put(CacheConfig.USER_PAGE_RESPONSES_CACHE, "key", null, users(2),
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertFalse(cache.write(CacheConfig.USER_RESPONSES_CACHE, written.getId(), new MockHttpServletRequest(),
+                new MockHttpServletResponse()));
+        assertTrue(cache.write(CacheConfig.USER_RESPONSES_CACHE, other.getId(), new MockHttpServletRequest(),
+                new MockHttpServletResponse()));
+        assertTrue(cache.write(CacheConfig.USER_PAGE_RESPONSES_CACHE, "key", new MockHttpServletRequest(),
+                new MockHttpServletResponse()));
+    }
+
+    @Test
+    void customize_shouldRegisterCachesForEviction() throws Exception {
+        UserResponseCache cache = newCache(false);
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cache.customize(cacheManager);
+        cache.put(CacheConfig.USER_RESPONSES_CACHE, "key", null, new Dto<>(user(0)), new MockHttpServletRequest(),
+                new MockHttpServletResponse());
+
+        cacheManager.getCache(CacheConfig.USER_RESPONSES_CACHE).evict("key");
+
+        assertFalse(cache.write(CacheConfig.USER_RESPONSES_CACHE, "key", new MockHttpServletRequest(),
+                new MockHttpServletResponse()));
+    }
+}
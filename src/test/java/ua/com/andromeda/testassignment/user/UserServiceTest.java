@@ -1,5 +1,6 @@
 package ua.com.andromeda.testassignment.user;
 
+import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,18 +9,36 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ua.com.andromeda.testassignment.exception.InvalidFieldException;
 import ua.com.andromeda.testassignment.exception.InvalidRangeException;
+import ua.com.andromeda.testassignment.exception.InvalidSearchQueryException;
 import ua.com.andromeda.testassignment.exception.InvalidUUIDException;
+import ua.com.andromeda.testassignment.dto.BatchGetResult;
+import ua.com.andromeda.testassignment.exception.PreconditionFailedException;
+import ua.com.andromeda.testassignment.exception.TooManyIdsException;
 import ua.com.andromeda.testassignment.exception.UserNotFoundException;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -49,34 +68,82 @@ class UserServiceTest {
         // config
         UUID id = UUID.randomUUID();
         User expected = getDefaultUser();
-        when(userRepository.findById(id)).thenReturn(Optional.of(expected));
+        when(userRepository.findCachedById(id)).thenReturn(Optional.of(expected));
 
         // method invocation
         User actual = target.findById(id.toString());
 
         // assertions
         assertEquals(expected, actual);
-        verify(userRepository).findById(id);
-        verify(userRepository, times(1)).findById(id);
+        verify(userRepository).findCachedById(id);
+        verify(userRepository, times(1)).findCachedById(id);
     }
 
     @Test
     void findById_shouldThrowResourceNotFoundException() {
         // config
         UUID randomId = UUID.randomUUID();
-        when(userRepository.findById(randomId)).thenReturn(Optional.empty());
+        when(userRepository.findCachedById(randomId)).thenReturn(Optional.empty());
 
         // method invocation, assertions
         assertThrows(UserNotFoundException.class, () -> target.findById(randomId.toString()));
-        verify(userRepository).findById(randomId);
-        verify(userRepository, times(1)).findById(randomId);
+        verify(userRepository).findCachedById(randomId);
+        verify(userRepository, times(1)).findCachedById(randomId);
     }
 
     @Test
     void findById_shouldThrowInvalidUUIDException() {
         String invalidUUID = "invalid uuid";
         assertThrows(InvalidUUIDException.class, () -> target.findById(invalidUUID));
-        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).findCachedById(any());
+    }
+
+    @Test
+    void findById_shouldThrowInvalidUUIDException_nonCanonicalForm() {
+        // accepted by UUID.fromString, but not a form clients get from this API
+        String nonCanonicalUUID = "1-1-1-1-1";
+        assertThrows(InvalidUUIDException.class, () -> target.findById(nonCanonicalUUID));
+        verify(userRepository, never()).findCachedById(any());
+    }
+
+    @Test
+    void findAllById_shouldSplitFoundAndMissingIds() {
+        User user = getDefaultUser();
+        UUID id = UUID.randomUUID();
+        UUID missingId = UUID.randomUUID();
+        user.setId(id);
+        when(userRepository.findAllCachedById(List.of(id, missingId))).thenReturn(Map.of(id, user));
+
+        BatchGetResult result = target.findAllById(List.of(id.toString(), missingId.toString(), id.toString()));
+
+        assertEquals(Map.of(id, user), result.users());
+        assertEquals(List.of(missingId.toString()), result.missing());
+    }
+
+    @Test
+    void findAllById_shouldThrowInvalidUUIDException_beforeAnyLookup() {
+        List<String> ids = List.of(UUID.randomUUID().toString(), "invalidUUID");
+
+        assertThrows(InvalidUUIDException.class, () -> target.findAllById(ids));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void findAllById_shouldThrowTooManyIdsException() {
+        List<String> ids = Collections.nCopies(10_001, UUID.randomUUID().toString());
+
+        assertThrows(TooManyIdsException.class, () -> target.findAllById(ids));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void findById_shouldAcceptUpperCaseUUID() {
+        UUID id = UUID.randomUUID();
+        when(userRepository.findCachedById(id)).thenReturn(Optional.of(getDefaultUser()));
+
+        target.findById(id.toString().toUpperCase());
+
+        verify(userRepository).findCachedById(id);
     }
 
 
@@ -94,6 +161,28 @@ class UserServiceTest {
         verify(userRepository, times(1)).save(userToSave);
     }
 
+    @Test
+    void save_shouldStoreE164PhoneNumber() {
+        User userToSave = getDefaultUser();
+        userToSave.setPhoneNumber("+380 (67) 895-55-68");
+
+        target.save(userToSave);
+
+        assertEquals("+380678955568", userToSave.getPhoneNumberE164());
+        verify(userRepository, times(1)).save(userToSave);
+    }
+
+    @Test
+    void save_shouldClearE164PhoneNumber_noPhoneNumber() {
+        User userToSave = getDefaultUser();
+        userToSave.setPhoneNumber(null);
+        userToSave.setPhoneNumberE164("+380678955568");
+
+        target.save(userToSave);
+
+        assertNull(userToSave.getPhoneNumberE164());
+    }
+
     @Test
     void delete_shouldThrowInvalidUUIDException() {
         assertThrows(InvalidUUIDException.class, () -> target.delete("invalid uuid"));
@@ -113,14 +202,15 @@ class UserServiceTest {
         LocalDate from = now.minusYears(30);
         LocalDate to = now.minusYears(15);
         Pageable pageable = Pageable.unpaged();
-        PageImpl<User> expected = new PageImpl<>(List.of(getDefaultUser(), getDefaultUser()));
+        Set<UserField> fields = UserField.parse("email");
+        PageImpl<UserView> expected = new PageImpl<>(List.of(new UserView(Map.of()), new UserView(Map.of())));
 
-        when(userRepository.findAllByBirthDateBetweenAnd(from, to, pageable)).thenReturn(expected);
+        when(userRepository.findViewsByBirthDateBetween(from, to, fields, pageable)).thenReturn(expected);
 
-        Page<User> actual = target.findAllByBirthDateBetween(from, to, pageable);
+        Page<UserView> actual = target.findAllByBirthDateBetween(from, to, fields, pageable);
 
         assertEquals(expected, actual);
-        verify(userRepository, times(1)).findAllByBirthDateBetweenAnd(from, to, pageable);
+        verify(userRepository, times(1)).findViewsByBirthDateBetween(from, to, fields, pageable);
     }
 
     @Test
@@ -130,7 +220,7 @@ class UserServiceTest {
         Pageable pageable = Pageable.unpaged();
         assertThrows(
                 InvalidRangeException.class,
-                () -> target.findAllByBirthDateBetween(from, to, pageable)
+                () -> target.findAllByBirthDateBetween(from, to, Set.of(UserField.ID), pageable)
         );
     }
 
@@ -140,56 +230,195 @@ class UserServiceTest {
         Pageable pageable = Pageable.unpaged();
         assertThrows(
                 InvalidRangeException.class,
-                () -> target.findAllByBirthDateBetween(null, to, pageable)
+                () -> target.findAllByBirthDateBetween(null, to, Set.of(UserField.ID), pageable)
+        );
+    }
+
+    @Test
+    void search_shouldFetchOneExtraHitToDetectNextPage() {
+        List<SearchHit> hits = List.of(
+                new SearchHit(getDefaultUser(), SearchMatch.LAST_NAME, "heras", "heraskin"),
+                new SearchHit(getDefaultUser(), SearchMatch.LAST_NAME, "heras", "herasymenko")
+        );
+        when(userRepository.searchByPrefix(SearchCursor.first("heras", SearchMatch.LAST_NAME), 2)).thenReturn(hits);
+
+        Slice<SearchHit> actual = target.search("  Heras ", null, 1);
+
+        assertEquals(hits.subList(0, 1), actual.getContent());
+        assertTrue(actual.hasNext());
+        verify(userRepository, never()).searchByPrefix(eq(SearchCursor.first("heras", SearchMatch.FIRST_NAME)), anyInt());
+    }
+
+    @Test
+    void search_shouldContinueWithNextMatchAfterCursor() {
+        SearchCursor after = new SearchCursor("herasym", SearchMatch.LAST_NAME, "herasymenko", UUID.randomUUID());
+        SearchHit hit = new SearchHit(getDefaultUser(), SearchMatch.FIRST_NAME, "herasym", "herasym");
+        when(userRepository.searchByPrefix(after, 3)).thenReturn(List.of());
+        when(userRepository.searchByPrefix(SearchCursor.first("herasym", SearchMatch.FIRST_NAME), 3))
+                .thenReturn(List.of(hit));
+        when(userRepository.searchByPrefix(SearchCursor.first("herasym", SearchMatch.EMAIL), 2)).thenReturn(List.of());
+
+        Slice<SearchHit> actual = target.search("herasm", after, 2);
+
+        assertEquals(List.of(hit), actual.getContent());
+        assertFalse(actual.hasNext());
+        verify(userRepository, never()).findClosestSearchTerm(any());
+    }
+
+    @Test
+    void search_shouldSearchClosestTerm_noPrefixMatch() {
+        SearchHit hit = new SearchHit(getDefaultUser(), SearchMatch.LAST_NAME, "heraskin", "heraskin");
+        when(userRepository.searchByPrefix(any(), anyInt())).thenReturn(List.of());
+        when(userRepository.findClosestSearchTerm("herasrkin")).thenReturn(Optional.of("heraskin"));
+        when(userRepository.searchByPrefix(SearchCursor.first("heraskin", SearchMatch.LAST_NAME), 11))
+                .thenReturn(List.of(hit));
+
+        Slice<SearchHit> actual = target.search("herasrkin", null, 10);
+
+        assertEquals(List.of(hit), actual.getContent());
+        assertFalse(actual.hasNext());
+    }
+
+    @Test
+    void search_shouldReturnEmptySlice_noSimilarTerm() {
+        when(userRepository.searchByPrefix(any(), anyInt())).thenReturn(List.of());
+        when(userRepository.findClosestSearchTerm("qwerty")).thenReturn(Optional.empty());
+
+        assertTrue(target.search("qwerty", null, 10).isEmpty());
+    }
+
+    @Test
+    void search_shouldThrowInvalidSearchQueryException_shortQuery() {
+        assertThrows(InvalidSearchQueryException.class, () -> target.search(" ab ", null, 10));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void findAllByBirthDateBetweenAfter_success_firstSlice() {
+        LocalDate now = LocalDate.now();
+        LocalDate from = now.minusYears(30);
+        LocalDate to = now.minusYears(15);
+        BirthDateCursor before = BirthDateCursor.before(from);
+        Set<UserField> fields = UserField.parse("");
+        SliceImpl<UserView> expected = new SliceImpl<>(List.of(new UserView(Map.of())));
+
+        when(userRepository.findViewsByBirthDateBetweenAfter(from, to, before, fields, 5)).thenReturn(expected);
+
+        Slice<UserView> actual = target.findAllByBirthDateBetween(from, to, fields, null, 5);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void findAllByBirthDateBetweenAfter_success_nextSlice() {
+        LocalDate now = LocalDate.now();
+        LocalDate from = now.minusYears(30);
+        LocalDate to = now.minusYears(15);
+        BirthDateCursor after = new BirthDateCursor(now.minusYears(20), UUID.randomUUID());
+        Set<UserField> fields = UserField.parse("");
+        SliceImpl<UserView> expected = new SliceImpl<>(List.of(new UserView(Map.of())));
+
+        when(userRepository.findViewsByBirthDateBetweenAfter(from, to, after, fields, 5)).thenReturn(expected);
+
+        Slice<UserView> actual = target.findAllByBirthDateBetween(from, to, fields, after, 5);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void findAllByBirthDateBetweenAfter_shouldThrowInvalidRangeException_fromGreaterThanTo() {
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.minusYears(15);
+        assertThrows(
+                InvalidRangeException.class,
+                () -> target.findAllByBirthDateBetween(from, to, Set.of(UserField.ID), null, 10)
         );
     }
 
+    @Test
+    void exportByBirthDateBetween_shouldWriteEveryUserAsNdjson() {
+        // config
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 1, 1);
+        User first = getDefaultUser();
+        User second = getDefaultUser();
+        second.setEmail("heraskin@gmail.com");
+        when(userRepository.streamAllByBirthDateBetween(from, to)).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // method invocation
+        target.exportByBirthDateBetween(from, to, UserExportFormat.NDJSON, out);
+
+        // assertions
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"email\":\"heraskin@gmail.com\""));
+    }
+
+    @Test
+    void exportByBirthDateBetween_shouldDefaultMissingBounds() {
+        // method invocation
+        target.exportByBirthDateBetween(null, null, UserExportFormat.CSV, new ByteArrayOutputStream());
+
+        // assertions
+        verify(userRepository).streamAllByBirthDateBetween(LocalDate.of(1, 1, 1), LocalDate.now());
+    }
+
+    @Test
+    void exportByBirthDateBetween_shouldThrowInvalidRangeException_fromGreaterThanTo() {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(1990, 1, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThrows(InvalidRangeException.class,
+                () -> target.exportByBirthDateBetween(from, to, UserExportFormat.NDJSON, out));
+        assertEquals(0, out.size());
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void partialUpdate_success_emptyFields() {
         // config
         User expected = getDefaultUser();
         UUID id = UUID.randomUUID();
         expected.setId(id);
-        when(userRepository.findById(id)).thenReturn(Optional.of(expected));
-        when(userRepository.save(any(User.class))).thenReturn(expected);
+        expected.setBirthDate(LocalDate.of(1990, 1, 1));
+        when(userRepository.updateFields(id, Collections.emptyMap(), null)).thenReturn(Optional.of(expected));
 
         // method invocation
-        User actual = target.partialUpdate(id.toString(), Collections.emptyMap());
+        User actual = target.partialUpdate(id.toString(), Collections.emptyMap(), null);
 
         // assertions
-        verify(userRepository, times(1)).findById(id);
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).updateFields(id, Collections.emptyMap(), null);
+        verify(userRepository, never()).save(any(User.class));
         assertEquals(expected, actual);
     }
 
     @Test
     void partialUpdate_success_notEmptyFields() {
         // config
-        User userToUpdate = getDefaultUser();
+        User updatedUser = getDefaultUser();
         UUID id = UUID.randomUUID();
-        userToUpdate.setId(id);
-        when(userRepository.findById(id)).thenReturn(Optional.of(userToUpdate));
-        when(userRepository.save(any(User.class))).thenReturn(userToUpdate);
-
+        updatedUser.setId(id);
+        updatedUser.setBirthDate(LocalDate.of(1990, 1, 1));
         String newFirstName = "Taras";
         String newLastName = "Shevchenko";
+        updatedUser.setFirstName(newFirstName);
+        updatedUser.setLastName(newLastName);
         Map<String, Object> fields = Map.of(
                 "firstName", newFirstName,
                 "lastName", newLastName
         );
+        when(userRepository.updateFields(id, fields, null)).thenReturn(Optional.of(updatedUser));
 
         // method invocation
-        User actual = target.partialUpdate(id.toString(), fields);
+        User actual = target.partialUpdate(id.toString(), fields, null);
 
         // assertions
-        verify(userRepository, times(1)).findById(id);
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).updateFields(id, fields, null);
+        verify(userRepository, never()).findById(any());
         assertEquals(newFirstName, actual.getFirstName());
         assertEquals(newLastName, actual.getLastName());
-        assertEquals(userToUpdate.getEmail(), actual.getEmail());
-        assertEquals(userToUpdate.getAddress(), actual.getAddress());
-        assertEquals(userToUpdate.getBirthDate(), actual.getBirthDate());
-        assertEquals(userToUpdate.getPhoneNumber(), actual.getPhoneNumber());
     }
 
     @Test
@@ -198,16 +427,114 @@ class UserServiceTest {
         User userToUpdate = getDefaultUser();
         UUID id = UUID.randomUUID();
         userToUpdate.setId(id);
-        when(userRepository.findById(id)).thenReturn(Optional.of(userToUpdate));
-        when(userRepository.save(userToUpdate)).thenReturn(userToUpdate);
-        Map<String, Object> fields = Map.of("nonExisting", "nonExistingValue");
+        userToUpdate.setBirthDate(LocalDate.of(1990, 1, 1));
+        when(userRepository.updateFields(id, Collections.emptyMap(), null)).thenReturn(Optional.of(userToUpdate));
+        Map<String, Object> fields = Map.of("nonExisting", "nonExistingValue", "phoneNumberE164", "+1");
 
         // method invocation
-        User actual = target.partialUpdate(id.toString(), fields);
+        User actual = target.partialUpdate(id.toString(), fields, null);
 
         // assertions
-        verify(userRepository, times(1)).findById(id);
-        verify(userRepository, times(1)).save(userToUpdate);
+        verify(userRepository, times(1)).updateFields(id, Collections.emptyMap(), null);
         assertEquals(userToUpdate, actual);
     }
-}
\ No newline at end of file
+
+    @Test
+    void partialUpdate_shouldConvertValuesAndStoreE164PhoneNumber() {
+        // config
+        User updatedUser = getDefaultUser();
+        UUID id = UUID.randomUUID();
+        updatedUser.setBirthDate(LocalDate.of(1990, 1, 1));
+        when(userRepository.updateFields(eq(id), anyMap(), isNull())).thenReturn(Optional.of(updatedUser));
+        Map<String, Object> fields = Map.of(
+                "birthDate", "1990-01-01",
+                "phoneNumber", "+380 (67) 895-55-68"
+        );
+
+        // method invocation
+        target.partialUpdate(id.toString(), fields, null);
+
+        // assertions
+        verify(userRepository).updateFields(id, Map.of(
+                "birthDate", LocalDate.of(1990, 1, 1),
+                "phoneNumber", "+380 (67) 895-55-68",
+                "phoneNumberE164", "+380678955568"
+        ), null);
+    }
+
+    @Test
+    void partialUpdate_shouldThrowConstraintViolationException_invalidField() {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> fields = Map.of("birthDate", LocalDate.now().toString());
+
+        assertThrows(ConstraintViolationException.class, () -> target.partialUpdate(id.toString(), fields, null));
+        verify(userRepository, never()).updateFields(any(), anyMap(), any());
+    }
+
+    @Test
+    void partialUpdate_shouldThrowInvalidFieldException_unconvertibleValue() {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> fields = Map.of("birthDate", "not a date");
+
+        assertThrows(InvalidFieldException.class, () -> target.partialUpdate(id.toString(), fields, null));
+        verify(userRepository, never()).updateFields(any(), anyMap(), any());
+    }
+
+    @Test
+    void partialUpdate_shouldThrowConstraintViolationException_invalidMergedUser() {
+        // the stored row is already invalid, so the merged result fails validation
+        User storedUser = getDefaultUser();
+        UUID id = UUID.randomUUID();
+        when(userRepository.updateFields(id, Map.of("address", "Khreshchatyk 1"), null)).thenReturn(Optional.of(storedUser));
+
+        assertThrows(ConstraintViolationException.class,
+                () -> target.partialUpdate(id.toString(), Map.of("address", "Khreshchatyk 1"), null));
+    }
+
+    @Test
+    void partialUpdate_shouldThrowUserNotFoundException() {
+        UUID id = UUID.randomUUID();
+        when(userRepository.updateFields(id, Map.of("address", "Khreshchatyk 1"), null)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class,
+                () -> target.partialUpdate(id.toString(), Map.of("address", "Khreshchatyk 1"), null));
+    }
+
+    @Test
+    void partialUpdate_shouldThrowPreconditionFailedException_versionMismatch() {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> fields = Map.of("address", "Khreshchatyk 1");
+        when(userRepository.updateFields(id, fields, Set.of(1L))).thenReturn(Optional.empty());
+        when(userRepository.existsById(id)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class, () -> target.partialUpdate(id.toString(), fields, Set.of(1L)));
+    }
+
+    @Test
+    void update_shouldCarryStoredVersion_noPrecondition() {
+        UUID id = UUID.randomUUID();
+        User storedUser = getDefaultUser();
+        storedUser.setVersion(3);
+        User userToUpdate = getDefaultUser();
+        userToUpdate.setId(id);
+        when(userRepository.findById(id)).thenReturn(Optional.of(storedUser));
+
+        target.update(userToUpdate, null);
+
+        assertEquals(3, userToUpdate.getVersion());
+        verify(userRepository, times(1)).save(userToUpdate);
+    }
+
+    @Test
+    void update_shouldThrowPreconditionFailedException_versionMismatch() {
+        UUID id = UUID.randomUUID();
+        User storedUser = getDefaultUser();
+        storedUser.setVersion(3);
+        User userToUpdate = getDefaultUser();
+        userToUpdate.setId(id);
+        when(userRepository.findById(id)).thenReturn(Optional.of(storedUser));
+
+        assertThrows(PreconditionFailedException.class, () -> target.update(userToUpdate, Set.of(2L)));
+        verify(userRepository, never()).save(any(User.class));
+    }
+}
@@ -0,0 +1,102 @@
+package ua.com.andromeda.testassignment.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.com.andromeda.testassignment.dto.UserStats;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static ua.com.andromeda.testassignment.TestFixtures.userProperties;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatsServiceTest {
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Mock
+    UserStatsRepository userStatsRepository;
+
+    UserStatsService target;
+
+    @BeforeEach
+    void setUp() {
+        target = new UserStatsService(userStatsRepository,
+                userProperties(Map.of("user.min.age", "18", "user.stats.age-bucket-years", "10")));
+    }
+
+    @Test
+    void getStats_shouldAggregateBirthDateCounts() {
+        LocalDate twenty = TODAY.minusYears(20);
+        LocalDate thirty = TODAY.minusYears(30);
+        when(userStatsRepository.findAll()).thenReturn(List.of(
+                new BirthDateCount(twenty, 3, 3, 1),
+                new BirthDateCount(twenty.minusMonths(1), 1, 0, 0),
+                new BirthDateCount(thirty, 2, 1, 1),
+                new BirthDateCount(TODAY.minusYears(17), 2, 0, 0)
+        ));
+
+        UserStats byYear = target.getStats(UserStatsGrouping.YEAR);
+        UserStats byMonth = target.getStats(UserStatsGrouping.MONTH);
+
+        assertEquals(8, byYear.users());
+        assertEquals(0.5, byYear.withPhoneNumberShare());
+        assertEquals(0.25, byYear.withAddressShare());
+        assertEquals(Map.of("<18", 2L, "18-27", 4L, "28-37", 2L), byYear.byAge());
+        assertEquals(List.of("<18", "18-27", "28-37"), List.copyOf(byYear.byAge().keySet()));
+        assertEquals(2L, byYear.byBirthDate().get(String.valueOf(thirty.getYear())));
+        assertEquals(3L, byMonth.byBirthDate().get(twenty.toString().substring(0, 7)));
+        assertNull(byYear.refreshedAt());
+        verify(userStatsRepository, never()).refresh();
+    }
+
+    @Test
+    void getStats_shouldServeLastRefreshWithoutQuerying() {
+        when(userStatsRepository.findAll()).thenReturn(List.of(new BirthDateCount(TODAY.minusYears(40), 5, 5, 5)));
+
+        target.refresh();
+        UserStats stats = target.getStats(UserStatsGrouping.YEAR);
+
+        assertEquals(5, stats.users());
+        InOrder inOrder = inOrder(userStatsRepository);
+        inOrder.verify(userStatsRepository).refresh();
+        inOrder.verify(userStatsRepository).findAll();
+        verifyNoMoreInteractions(userStatsRepository);
+    }
+
+    @Test
+    void getStats_shouldKeepRefreshCompletedWhileReadingViewBeforeFirstRefresh() {
+        AtomicBoolean refreshing = new AtomicBoolean();
+        when(userStatsRepository.findAll()).thenAnswer(invocation -> {
+            if (refreshing.compareAndSet(false, true)) {
+                target.refresh();
+                return List.of(new BirthDateCount(TODAY.minusYears(40), 1, 1, 1));
+            }
+            return List.of(new BirthDateCount(TODAY.minusYears(40), 5, 5, 5));
+        });
+
+        UserStats stats = target.getStats(UserStatsGrouping.YEAR);
+
+        assertEquals(5, stats.users());
+        assertNotNull(stats.refreshedAt());
+        assertSame(stats, target.getStats(UserStatsGrouping.YEAR));
+    }
+
+    @Test
+    void getStats_shouldReturnZeroShares_noUsers() {
+        when(userStatsRepository.findAll()).thenReturn(List.of());
+
+        UserStats stats = target.getStats(UserStatsGrouping.MONTH);
+
+        assertEquals(0, stats.users());
+        assertEquals(0, stats.withPhoneNumberShare());
+        assertTrue(stats.byAge().isEmpty());
+    }
+}
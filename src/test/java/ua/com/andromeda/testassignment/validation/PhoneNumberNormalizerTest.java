@@ -0,0 +1,35 @@
+package ua.com.andromeda.testassignment.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ua.com.andromeda.testassignment.TestFixtures.userProperties;
+
+class PhoneNumberNormalizerTest {
+    private final PhoneNumberNormalizer target = new PhoneNumberNormalizer(
+            userProperties(Map.of("user.phone.region", "UA", "user.phone.cache-size", "100")));
+
+    @Test
+    void toE164_shouldNormalizeInternationalNumber() {
+        assertEquals(Optional.of("+380678955568"), target.toE164("+380 (67) 895-55-68"));
+    }
+
+    @Test
+    void toE164_shouldUseConfiguredRegionForNationalNumber() {
+        assertEquals(Optional.of("+380678955568"), target.toE164("067 895 55 68"));
+    }
+
+    @Test
+    void toE164_shouldReturnEmpty_impossibleNumber() {
+        assertTrue(target.toE164("+3806789").isEmpty());
+    }
+
+    @Test
+    void toE164_shouldReturnEmpty_notANumber() {
+        assertTrue(target.toE164("not a phone").isEmpty());
+    }
+}